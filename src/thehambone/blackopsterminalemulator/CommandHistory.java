@@ -0,0 +1,527 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import thehambone.blackopsterminalemulator.io.Logger;
+
+/**
+ * A {@code CommandHistory} keeps the lines typed at the terminal so that they
+ * can be recalled and searched.
+ * <p>
+ * Entries are kept in a ring of fixed capacity; once it is full, adding an
+ * entry forgets the oldest one. Any entry can be looked up by its distance
+ * from the newest entry in constant time.
+ * <p>
+ * Entries are also indexed by the three-character sequences (trigrams) they
+ * contain. A search for a string of three or more characters only looks at
+ * the entries that contain its least common trigram, so searching stays fast
+ * when the history is large. Shorter strings are searched for by scanning the
+ * entries, newest first.
+ * <p>
+ * The history can be saved to a file. New entries are appended to the file
+ * and written out in batches, and a background thread writes out whatever is
+ * left at least every ten seconds, so a command is saved soon after it is
+ * entered even if nothing else is typed. The file is compacted when it is
+ * opened if it has grown well past the capacity of the history. This class is
+ * not thread-safe, except for {@link #open(File)}, {@link #flush()} and
+ * {@link #close()}.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class CommandHistory
+{
+    /**
+     * The number of entries kept by default.
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+    
+    private static final int TRIGRAM_LENGTH = 3;
+    
+    // Entries are written to the file after this many, and the rest are
+    // written by the flush thread after this long
+    private static final int FLUSH_BATCH_SIZE = 16;
+    private static final long FLUSH_INTERVAL_MILLIS = 10000;
+    
+    private static final Charset FILE_CHARSET = Charset.forName("UTF-8");
+    
+    private static final ScheduledExecutorService FLUSHER
+            = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "history-flusher");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    
+    private String[] entries;
+    private int nextSequence;
+    private int count;
+    
+    private final Map<Long, Postings> index;
+    
+    private Writer writer;
+    private int unflushedCount;
+    private long lastFlushTime;
+    private ScheduledFuture<?> flushTask;
+    
+    /**
+     * Creates a new, empty {@code CommandHistory} that is not saved to a file.
+     * 
+     * @param capacity the maximum number of entries
+     */
+    public CommandHistory(int capacity)
+    {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "capacity must be a postive integer");
+        }
+        
+        entries = new String[capacity];
+        nextSequence = 0;
+        count = 0;
+        
+        index = new HashMap<>();
+        
+        writer = null;
+        unflushedCount = 0;
+        lastFlushTime = 0;
+        flushTask = null;
+    }
+    
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return the history capacity
+     */
+    public int getCapacity()
+    {
+        return entries.length;
+    }
+    
+    /**
+     * Changes the maximum number of entries. If the history holds more entries
+     * than the new capacity, the oldest ones are forgotten.
+     * 
+     * @param capacity the new maximum number of entries
+     */
+    public void setCapacity(int capacity)
+    {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "capacity must be a postive integer");
+        }
+        
+        // Re-add the newest entries to a new ring
+        String[] old = new String[Math.min(count, capacity)];
+        for (int i = 0; i < old.length; i++) {
+            old[i] = get(old.length - 1 - i);
+        }
+        
+        entries = new String[capacity];
+        nextSequence = 0;
+        count = 0;
+        index.clear();
+        for (String s : old) {
+            store(s);
+        }
+    }
+    
+    /**
+     * Returns the number of entries.
+     * 
+     * @return the number of entries in the history
+     */
+    public int size()
+    {
+        return count;
+    }
+    
+    /**
+     * Gets an entry.
+     * 
+     * @param n the distance of the entry from the newest entry; 0 is the
+     *          newest entry
+     * @return the entry
+     * @throws IndexOutOfBoundsException if there are not enough entries
+     */
+    public String get(int n)
+    {
+        if (n < 0 || n > count - 1) {
+            throw new IndexOutOfBoundsException(
+                    "Entry: " + n + ", Entries: " + count);
+        }
+        
+        return entries[slot(nextSequence - 1 - n)];
+    }
+    
+    /**
+     * Adds an entry and writes it to the history file, if there is one.
+     * 
+     * @param s the entry to add
+     */
+    public void add(String s)
+    {
+        add(s, true);
+    }
+    
+    /**
+     * Adds an entry.
+     * 
+     * @param s the entry to add
+     * @param isSaved {@code true} to write the entry to the history file, if
+     *                there is one; {@code false} to keep it in memory only
+     */
+    public void add(String s, boolean isSaved)
+    {
+        store(s);
+        
+        if (isSaved && writer != null) {
+            try {
+                append(s);
+            } catch (IOException ex) {
+                Logger.stackTrace(ex);
+                close();
+            }
+        }
+    }
+    
+    /**
+     * Finds the newest entry that contains a string, starting at a given
+     * entry and going back in time.
+     * 
+     * @param query the string to look for
+     * @param start the distance of the first entry to look at from the newest
+     *              entry
+     * @return the distance of the matching entry from the newest entry, or -1
+     *         if no entry matches
+     */
+    public int search(String query, int start)
+    {
+        if (query.isEmpty() || start > count - 1) {
+            return -1;
+        }
+        start = Math.max(start, 0);
+        
+        // Scan the entries if the query is too short to be indexed
+        if (query.length() < TRIGRAM_LENGTH) {
+            for (int n = start; n < count; n++) {
+                if (get(n).contains(query)) {
+                    return n;
+                }
+            }
+            return -1;
+        }
+        
+        // Only look at the entries that contain the least common trigram
+        Postings rarest = null;
+        for (int i = 0; i + TRIGRAM_LENGTH <= query.length(); i++) {
+            Postings p = index.get(trigram(query, i));
+            if (p == null) {
+                return -1;
+            }
+            if (rarest == null || p.size() < rarest.size()) {
+                rarest = p;
+            }
+        }
+        
+        int newest = nextSequence - 1 - start;
+        for (int i = rarest.lastIndexAtMost(newest); i >= 0; i--) {
+            int sequence = rarest.get(i);
+            if (entries[slot(sequence)].contains(query)) {
+                return nextSequence - 1 - sequence;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Loads the entries saved in a file and starts saving new entries to it.
+     * The file is created if it does not exist.
+     * 
+     * @param file the history file
+     * @throws IOException if the file cannot be read or written
+     */
+    public synchronized void open(File file) throws IOException
+    {
+        Deque<String> lines = new ArrayDeque<>();
+        int lineCount = 0;
+        
+        close();
+        
+        // Keep the newest entries
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file),
+                            FILE_CHARSET))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (lines.size() == entries.length) {
+                        lines.removeFirst();
+                    }
+                    lines.addLast(line);
+                    lineCount++;
+                }
+            }
+        }
+        for (String line : lines) {
+            store(line);
+        }
+        
+        // Rewrite the file without the forgotten entries if it is too big
+        boolean isCompacting = lineCount > entries.length * 2;
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, !isCompacting), FILE_CHARSET));
+        if (isCompacting) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+        }
+        
+        lastFlushTime = System.currentTimeMillis();
+        
+        // Write out entries that were added after the last batch
+        flushTask = FLUSHER.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flush();
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Writes the entries that have not been written to the history file yet.
+     */
+    public synchronized void flush()
+    {
+        if (writer == null || unflushedCount == 0) {
+            return;
+        }
+        
+        try {
+            writer.flush();
+        } catch (IOException ex) {
+            Logger.stackTrace(ex);
+        }
+        unflushedCount = 0;
+        lastFlushTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * Writes the remaining entries to the history file and stops saving
+     * entries to it.
+     */
+    public synchronized void close()
+    {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        
+        if (writer == null) {
+            return;
+        }
+        
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            Logger.stackTrace(ex);
+        }
+        writer = null;
+        unflushedCount = 0;
+    }
+    
+    /*
+     * Appends an entry to the history file, flushing it once a batch has
+     * built up.
+     */
+    private synchronized void append(String s) throws IOException
+    {
+        writer.write(s);
+        writer.write('\n');
+        unflushedCount++;
+        
+        if (unflushedCount >= FLUSH_BATCH_SIZE || System.currentTimeMillis()
+                - lastFlushTime >= FLUSH_INTERVAL_MILLIS) {
+            flush();
+        }
+    }
+    
+    /*
+     * Adds an entry to the ring and the index, forgetting the oldest entry if
+     * the ring is full.
+     */
+    private void store(String s)
+    {
+        if (count == entries.length) {
+            unindex(nextSequence - count);
+            count--;
+        }
+        
+        entries[slot(nextSequence)] = s;
+        for (int i = 0; i + TRIGRAM_LENGTH <= s.length(); i++) {
+            Long key = trigram(s, i);
+            Postings p = index.get(key);
+            if (p == null) {
+                p = new Postings();
+                index.put(key, p);
+            }
+            p.add(nextSequence);
+        }
+        
+        nextSequence++;
+        count++;
+    }
+    
+    /*
+     * Removes the oldest entry from the index. Being the oldest, it is at the
+     * front of each of its posting lists.
+     */
+    private void unindex(int sequence)
+    {
+        String s = entries[slot(sequence)];
+        
+        for (int i = 0; i + TRIGRAM_LENGTH <= s.length(); i++) {
+            Long key = trigram(s, i);
+            Postings p = index.get(key);
+            if (p != null && p.size() > 0 && p.get(0) == sequence) {
+                p.removeFirst();
+                if (p.size() == 0) {
+                    index.remove(key);
+                }
+            }
+        }
+        entries[slot(sequence)] = null;
+    }
+    
+    /*
+     * Gets the position in the ring of the entry with the specified sequence
+     * number.
+     */
+    private int slot(int sequence)
+    {
+        return sequence % entries.length;
+    }
+    
+    /*
+     * Packs the three characters at the specified position into a key.
+     */
+    private static Long trigram(String s, int i)
+    {
+        return ((long)s.charAt(i) << 32) | ((long)s.charAt(i + 1) << 16)
+                | s.charAt(i + 2);
+    }
+    
+    /*
+     * The sequence numbers of the entries that contain a trigram, oldest
+     * first.
+     */
+    private static final class Postings
+    {
+        private int[] sequences = new int[4];
+        private int head = 0;
+        private int size = 0;
+        
+        int size()
+        {
+            return size;
+        }
+        
+        int get(int i)
+        {
+            return sequences[head + i];
+        }
+        
+        void add(int sequence)
+        {
+            // An entry that contains a trigram twice is only listed once
+            if (size > 0 && get(size - 1) == sequence) {
+                return;
+            }
+            
+            if (head + size == sequences.length) {
+                int[] newSequences = sequences;
+                if (size * 2 > sequences.length) {
+                    newSequences = new int[sequences.length * 2];
+                }
+                System.arraycopy(sequences, head, newSequences, 0, size);
+                sequences = newSequences;
+                head = 0;
+            }
+            sequences[head + size++] = sequence;
+        }
+        
+        void removeFirst()
+        {
+            head++;
+            size--;
+        }
+        
+        /* Finds the last position holding a sequence number no greater than
+           the specified one, or -1 if there is none */
+        int lastIndexAtMost(int sequence)
+        {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid) <= sequence) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+    }
+}
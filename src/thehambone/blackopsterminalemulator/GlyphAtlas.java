@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@code GlyphAtlas} holds pre-rendered images of the printable ASCII
+ * characters in a particular font so that text can be drawn by copying glyphs
+ * instead of laying out a string for every character.
+ * <p>
+ * The glyphs are rendered into one sprite sheet per color. A sheet is created
+ * the first time its color is used. Each sheet takes up tens of kilobytes, so
+ * only the most recently used sheets are kept. Characters outside of the
+ * printable ASCII range are drawn as text.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class GlyphAtlas
+{
+    private static final char FIRST_CHAR = ' ';
+    private static final char LAST_CHAR = '~';
+    
+    // Extra space around each glyph for parts that stick out of the cell
+    private static final int GLYPH_PADDING = 2;
+    
+    private static final int MAX_SHEETS = 64;
+    
+    private final Font font;
+    private final GraphicsConfiguration gc;
+    private final int glyphWidth;
+    private final int glyphHeight;
+    private final int ascent;
+    
+    private final Map<Color, BufferedImage> sheets;
+    private Color lastColor;
+    private BufferedImage lastSheet;
+    
+    /**
+     * Creates a new {@code GlyphAtlas}.
+     * 
+     * @param font the font to render the glyphs with
+     * @param fm the metrics of the font
+     * @param gc the graphics configuration of the display, used to create
+     *           images that can be drawn quickly; may be {@code null}
+     */
+    public GlyphAtlas(Font font, FontMetrics fm, GraphicsConfiguration gc)
+    {
+        this.font = font;
+        this.gc = gc;
+        
+        glyphWidth = fm.charWidth('m') + GLYPH_PADDING * 2;
+        glyphHeight = fm.getAscent() + fm.getDescent() + GLYPH_PADDING * 2;
+        ascent = fm.getAscent();
+        
+        // Keep the most recently used sheets
+        sheets = new LinkedHashMap<Color, BufferedImage>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Color, BufferedImage> e)
+            {
+                return size() > MAX_SHEETS;
+            }
+        };
+        lastColor = null;
+        lastSheet = null;
+    }
+    
+    /**
+     * Gets the font used to render the glyphs.
+     * 
+     * @return the atlas font
+     */
+    public Font getFont()
+    {
+        return font;
+    }
+    
+    /**
+     * Draws a character.
+     * 
+     * @param g2d the graphics context to draw on
+     * @param c the character to draw
+     * @param color the color of the character
+     * @param x the x-coordinate of the left edge of the character
+     * @param y the y-coordinate of the baseline of the character
+     */
+    public void drawGlyph(Graphics2D g2d, char c, Color color, int x, int y)
+    {
+        // Nothing to draw
+        if (c == ' ') {
+            return;
+        }
+        
+        // Draw characters that are not in the atlas as text
+        if (c < FIRST_CHAR || c > LAST_CHAR) {
+            g2d.setFont(font);
+            g2d.setColor(color);
+            g2d.drawString(String.valueOf(c), x, y);
+            return;
+        }
+        
+        int sx = (c - FIRST_CHAR) * glyphWidth;
+        int dx = x - GLYPH_PADDING;
+        int dy = y - ascent - GLYPH_PADDING;
+        
+        g2d.drawImage(getSheet(color),
+                dx, dy, dx + glyphWidth, dy + glyphHeight,
+                sx, 0, sx + glyphWidth, glyphHeight,
+                null);
+    }
+    
+    /*
+     * Gets the sprite sheet for a color, rendering it if necessary.
+     */
+    private BufferedImage getSheet(Color color)
+    {
+        if (color.equals(lastColor)) {
+            return lastSheet;
+        }
+        
+        BufferedImage sheet = sheets.get(color);
+        if (sheet == null) {
+            sheet = renderSheet(color);
+            sheets.put(color, sheet);
+        }
+        
+        lastColor = color;
+        lastSheet = sheet;
+        
+        return sheet;
+    }
+    
+    /*
+     * Renders all of the printable ASCII characters in one color.
+     */
+    private BufferedImage renderSheet(Color color)
+    {
+        int width = (LAST_CHAR - FIRST_CHAR + 1) * glyphWidth;
+        BufferedImage sheet;
+        
+        if (gc != null) {
+            sheet = gc.createCompatibleImage(width, glyphHeight,
+                    Transparency.TRANSLUCENT);
+        } else {
+            sheet = new BufferedImage(width, glyphHeight,
+                    BufferedImage.TYPE_INT_ARGB);
+        }
+        
+        Graphics2D g2d = sheet.createGraphics();
+        g2d.setFont(font);
+        g2d.setColor(color);
+        for (char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+            g2d.drawString(String.valueOf(c),
+                    (c - FIRST_CHAR) * glyphWidth + GLYPH_PADDING,
+                    ascent + GLYPH_PADDING);
+        }
+        g2d.dispose();
+        
+        return sheet;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+/**
+ * A {@code HistorySearch} runs a reverse incremental search through the
+ * command history while a line is being typed.
+ * <p>
+ * While the search is running, the line being edited shows the search string
+ * and the newest entry that contains it. Typing extends the search string,
+ * backspace shortens it, and pressing the search key again finds the next
+ * older match. The cancel key puts back the line that was being typed before
+ * the search started. Any other key puts the match on the line and ends the
+ * search; the key is then handled as if no search had been running.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+final class HistorySearch
+{
+    private static final String PROMPT = "(reverse-i-search)`";
+    private static final String FAILED_PROMPT = "(failed reverse-i-search)`";
+    private static final String PROMPT_END = "': ";
+    
+    private final CommandHistory history;
+    private final LineEditor editor;
+    
+    private final String savedLine;
+    private final StringBuilder query;
+    private final StringBuilder display;
+    
+    private String match;
+    private int matchIndex;
+    private boolean isFailing;
+    
+    /**
+     * Starts a search. The line being edited is replaced with the search
+     * prompt.
+     * 
+     * @param history the history to search
+     * @param editor the line being edited
+     */
+    HistorySearch(CommandHistory history, LineEditor editor)
+    {
+        this.history = history;
+        this.editor = editor;
+        
+        savedLine = editor.toString();
+        query = new StringBuilder();
+        display = new StringBuilder();
+        
+        match = savedLine;
+        matchIndex = 0;
+        isFailing = false;
+        
+        updateDisplay();
+    }
+    
+    /**
+     * Handles a key typed during the search.
+     * 
+     * @param c the key
+     * @return {@code true} if the key was used by the search, {@code false} if
+     *         the search has ended and the key should be handled as usual
+     */
+    boolean handleKey(char c)
+    {
+        switch (c) {
+            case Terminal.INPUT_SEARCH_HISTORY:
+                // Look for an older match
+                if (query.length() > 0 && !isFailing) {
+                    find(matchIndex + 1);
+                }
+                break;
+            case '\b':
+                if (query.length() > 0) {
+                    query.setLength(query.length() - 1);
+                    find(0);
+                }
+                break;
+            case Terminal.INPUT_CANCEL:
+                editor.setText(savedLine);
+                return false;
+            default:
+                // Printable characters extend the search string
+                if (c >= ' ' && c < Terminal.INPUT_CURSOR_LEFT) {
+                    query.append(c);
+                    find(isFailing ? 0 : matchIndex);
+                    break;
+                }
+                
+                editor.setText(match);
+                return false;
+        }
+        
+        updateDisplay();
+        return true;
+    }
+    
+    /*
+     * Finds the newest match at or before the specified entry. The previous
+     * match is kept if there is none.
+     */
+    private void find(int start)
+    {
+        int n = history.search(query.toString(), start);
+        
+        isFailing = n < 0 && query.length() > 0;
+        if (n >= 0) {
+            match = history.get(n);
+            matchIndex = n;
+        } else if (query.length() == 0) {
+            match = savedLine;
+            matchIndex = 0;
+        }
+    }
+    
+    /*
+     * Shows the search prompt and the current match on the line being edited.
+     */
+    private void updateDisplay()
+    {
+        display.setLength(0);
+        display.append(isFailing ? FAILED_PROMPT : PROMPT);
+        display.append(query);
+        display.append(PROMPT_END);
+        display.append(match);
+        editor.setText(display);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.awt.event.KeyEvent;
+
+/**
+ * A {@code KeyTranslator} turns keyboard events into the characters that are
+ * given to the terminal as input.
+ * <p>
+ * Characters are taken from key-typed events, which already account for the
+ * shift and caps lock keys and for the keyboard layout in use, and are looked
+ * up in a table of the characters that may be typed. Keys that do not type a
+ * character, such as the arrow keys, are looked up by key code in a second
+ * table when they are pressed. Both lookups are a single array access.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+final class KeyTranslator
+{
+    /**
+     * The value returned when a key is not used for input.
+     */
+    static final char NONE = 0;
+    
+    // Characters past the end of the table are never input
+    private static final int TYPED_TABLE_SIZE = 0x100;
+    private static final int PRESSED_TABLE_SIZE = 0x100;
+    
+    // Pressed keys are looked up separately for each combination of these
+    private static final int MODIFIER_MASK
+            = KeyEvent.SHIFT_DOWN_MASK | KeyEvent.CTRL_DOWN_MASK;
+    
+    private static final boolean IS_MAC_OS_X
+            = System.getProperty("os.name").toLowerCase().contains("mac");
+    
+    private final char[] typedTable;
+    private final char[][] pressedTables;
+    
+    /**
+     * Creates a new {@code KeyTranslator} that does not translate any keys.
+     */
+    KeyTranslator()
+    {
+        typedTable = new char[TYPED_TABLE_SIZE];
+        pressedTables = new char[4][PRESSED_TABLE_SIZE];
+    }
+    
+    /**
+     * Allows a range of characters to be typed as themselves.
+     * 
+     * @param first the first character in the range
+     * @param last the last character in the range
+     */
+    void mapTypedRange(char first, char last)
+    {
+        for (char c = first; c <= last; c++) {
+            mapTyped(c, c);
+        }
+    }
+    
+    /**
+     * Sets the input produced when a character is typed.
+     * 
+     * @param typed the character typed
+     * @param input the input produced, or {@link #NONE} to ignore the
+     *              character
+     */
+    void mapTyped(char typed, char input)
+    {
+        if (typed >= TYPED_TABLE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Character out of range: " + (int)typed);
+        }
+        
+        typedTable[typed] = input;
+    }
+    
+    /**
+     * Sets the input produced when a key is pressed.
+     * 
+     * @param keyCode the virtual key code of the key
+     * @param modifiers the modifier keys that must be held down; a
+     *                  combination of {@code KeyEvent.SHIFT_DOWN_MASK} and
+     *                  {@code KeyEvent.CTRL_DOWN_MASK}
+     * @param input the input produced
+     */
+    void mapPressed(int keyCode, int modifiers, char input)
+    {
+        if (keyCode < 0 || keyCode >= PRESSED_TABLE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Key code out of range: " + keyCode);
+        }
+        if ((modifiers & ~MODIFIER_MASK) != 0) {
+            throw new IllegalArgumentException(
+                    "Unsupported modifiers: " + modifiers);
+        }
+        
+        pressedTables[tableIndex(modifiers)][keyCode] = input;
+    }
+    
+    /**
+     * Translates a key-typed event.
+     * 
+     * @param e the event
+     * @return the input produced by the event, or {@link #NONE} if the
+     *         character typed is not used for input
+     */
+    char translateTyped(KeyEvent e)
+    {
+        char c = e.getKeyChar();
+        
+        if (c >= TYPED_TABLE_SIZE || isShortcut(e)) {
+            return NONE;
+        }
+        
+        return typedTable[c];
+    }
+    
+    /**
+     * Translates a key-pressed event.
+     * 
+     * @param e the event
+     * @return the input produced by the event, or {@link #NONE} if the key is
+     *         not used for input
+     */
+    char translatePressed(KeyEvent e)
+    {
+        int keyCode = e.getKeyCode();
+        int modifiers = e.getModifiersEx();
+        
+        if (keyCode >= PRESSED_TABLE_SIZE
+                || (modifiers & ~MODIFIER_MASK) != 0) {
+            return NONE;
+        }
+        
+        return pressedTables[tableIndex(modifiers)][keyCode];
+    }
+    
+    /*
+     * Checks whether a key was typed as a menu shortcut rather than as text.
+     * Alt is a shortcut key except on Mac OS X, where Option types accented
+     * characters and Command is used instead. Ctrl+Alt is AltGr on Windows.
+     */
+    private static boolean isShortcut(KeyEvent e)
+    {
+        if (IS_MAC_OS_X) {
+            return e.isMetaDown();
+        }
+        return e.isAltDown() && !e.isControlDown();
+    }
+    
+    /*
+     * Picks the pressed-key table for a combination of modifiers.
+     */
+    private static int tableIndex(int modifiers)
+    {
+        return ((modifiers & KeyEvent.SHIFT_DOWN_MASK) != 0 ? 1 : 0)
+                | ((modifiers & KeyEvent.CTRL_DOWN_MASK) != 0 ? 2 : 0);
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+/**
+ * A {@code LineEditor} holds the line of text that is being typed at the
+ * terminal and keeps track of what has to be printed to show the changes made
+ * to it.
+ * <p>
+ * The text is stored in a gap buffer: the characters before the cursor sit at
+ * the start of an array and the characters after the cursor sit at the end,
+ * with the free space in between. Typing and erasing at the cursor only
+ * touches the edge of the gap, and moving the cursor moves one character
+ * across the gap. The array grows by doubling, up to a maximum line length,
+ * and is kept from one line to the next.
+ * <p>
+ * Changes are not printed right away. Instead, the editor remembers the first
+ * character that changed since the text was last drawn, and
+ * {@link #render(StringBuilder)} produces the backspaces and characters that
+ * bring the screen up to date all at once.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class LineEditor
+{
+    private static final int INITIAL_CAPACITY = 128;
+    
+    private final int maxLength;
+    
+    private char[] buffer;
+    private int gapStart;
+    private int gapEnd;
+    
+    private boolean isOverwriteModeEnabled;
+    private char mask;
+    
+    private int drawnLength;
+    private int dirtyIndex;
+    private boolean isCursorDirty;
+    
+    /**
+     * Creates a new, empty {@code LineEditor}.
+     * 
+     * @param maxLength the maximum number of characters on a line
+     */
+    public LineEditor(int maxLength)
+    {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException(
+                    "maxLength must be a postive integer");
+        }
+        
+        this.maxLength = maxLength;
+        
+        buffer = new char[Math.min(INITIAL_CAPACITY, maxLength)];
+        isOverwriteModeEnabled = false;
+        reset((char)0);
+    }
+    
+    /**
+     * Clears the line and starts editing a new one. Nothing of the new line
+     * has been drawn yet.
+     * 
+     * @param mask the character to draw in place of each character on the
+     *             line; use 0 ({@code NUL}) to draw the characters as they are
+     */
+    public void reset(char mask)
+    {
+        this.mask = mask;
+        
+        gapStart = 0;
+        gapEnd = buffer.length;
+        
+        drawnLength = 0;
+        dirtyIndex = Integer.MAX_VALUE;
+        isCursorDirty = false;
+    }
+    
+    /**
+     * Returns the number of characters on the line.
+     * 
+     * @return the line length
+     */
+    public int length()
+    {
+        return buffer.length - (gapEnd - gapStart);
+    }
+    
+    /**
+     * Returns the position of the cursor on the line.
+     * 
+     * @return the index of the character after the cursor
+     */
+    public int getCursor()
+    {
+        return gapStart;
+    }
+    
+    /**
+     * Checks whether typed characters replace the characters after the cursor.
+     * 
+     * @return {@code true} if overwrite mode is on, {@code false} if typed
+     *         characters are inserted
+     */
+    public boolean isOverwriteModeEnabled()
+    {
+        return isOverwriteModeEnabled;
+    }
+    
+    /**
+     * Switches between insert mode and overwrite mode.
+     */
+    public void toggleOverwriteMode()
+    {
+        isOverwriteModeEnabled = !isOverwriteModeEnabled;
+    }
+    
+    /**
+     * Types a character at the cursor and moves the cursor past it.
+     * 
+     * @param c the character to type
+     * @return {@code true} if the character was typed, {@code false} if the
+     *         line is full
+     */
+    public boolean insert(char c)
+    {
+        // Replace the character after the cursor in overwrite mode
+        if (isOverwriteModeEnabled && gapEnd < buffer.length) {
+            gapEnd++;
+        } else if (length() == maxLength) {
+            return false;
+        } else if (gapStart == gapEnd) {
+            grow();
+        }
+        
+        markDirty(gapStart);
+        buffer[gapStart++] = c;
+        return true;
+    }
+    
+    /**
+     * Erases the character before the cursor.
+     * 
+     * @return {@code true} if a character was erased, {@code false} if the
+     *         cursor is at the start of the line
+     */
+    public boolean deleteBackward()
+    {
+        if (gapStart == 0) {
+            return false;
+        }
+        
+        gapStart--;
+        markDirty(gapStart);
+        return true;
+    }
+    
+    /**
+     * Erases the word before the cursor, along with any spaces between it and
+     * the cursor.
+     * 
+     * @return {@code true} if anything was erased, {@code false} if the cursor
+     *         is at the start of the line
+     */
+    public boolean deleteWordBackward()
+    {
+        int start = gapStart;
+        
+        while (start > 0 && buffer[start - 1] == ' ') {
+            start--;
+        }
+        while (start > 0 && buffer[start - 1] != ' ') {
+            start--;
+        }
+        
+        if (start == gapStart) {
+            return false;
+        }
+        
+        gapStart = start;
+        markDirty(gapStart);
+        return true;
+    }
+    
+    /**
+     * Moves the cursor one character to the left.
+     * 
+     * @return {@code true} if the cursor moved, {@code false} if it is at the
+     *         start of the line
+     */
+    public boolean moveLeft()
+    {
+        if (gapStart == 0) {
+            return false;
+        }
+        
+        buffer[--gapEnd] = buffer[--gapStart];
+        isCursorDirty = true;
+        return true;
+    }
+    
+    /**
+     * Moves the cursor one character to the right.
+     * 
+     * @return {@code true} if the cursor moved, {@code false} if it is at the
+     *         end of the line
+     */
+    public boolean moveRight()
+    {
+        if (gapEnd == buffer.length) {
+            return false;
+        }
+        
+        buffer[gapStart++] = buffer[gapEnd++];
+        isCursorDirty = true;
+        return true;
+    }
+    
+    /**
+     * Moves the cursor to the start of the line.
+     */
+    public void moveHome()
+    {
+        moveCursor(0);
+    }
+    
+    /**
+     * Moves the cursor to the end of the line.
+     */
+    public void moveEnd()
+    {
+        moveCursor(length());
+    }
+    
+    /**
+     * Replaces the whole line and puts the cursor at the end of it. Characters
+     * past the maximum line length are dropped.
+     * 
+     * @param s the new text of the line
+     */
+    public void setText(CharSequence s)
+    {
+        int length = Math.min(s.length(), maxLength);
+        
+        while (buffer.length < length) {
+            grow();
+        }
+        
+        // Keep the part that is already on the screen
+        int same = 0;
+        moveCursor(0);
+        while (same < length && gapEnd + same < buffer.length
+                && buffer[gapEnd + same] == s.charAt(same)) {
+            same++;
+        }
+        markDirty(same);
+        
+        for (int i = 0; i < length; i++) {
+            buffer[i] = s.charAt(i);
+        }
+        gapStart = length;
+        gapEnd = buffer.length;
+        isCursorDirty = true;
+    }
+    
+    /**
+     * Checks whether anything has changed since the line was last rendered.
+     * 
+     * @return {@code true} if the line needs to be redrawn, {@code false}
+     *         otherwise
+     */
+    public boolean isDirty()
+    {
+        return dirtyIndex != Integer.MAX_VALUE || isCursorDirty;
+    }
+    
+    /**
+     * Appends the output that updates the drawn line to match the text: one
+     * backspace for each drawn character from the first change onwards,
+     * followed by the new characters from that point on. The line is then
+     * considered drawn.
+     * 
+     * @param out the string to append the output to
+     * @return the number of screen cells between the end of the drawn line and
+     *         the cursor
+     */
+    public int render(StringBuilder out)
+    {
+        int length = length();
+        
+        // Erase the characters that changed, then draw the new ones
+        if (dirtyIndex < drawnLength) {
+            for (int i = dirtyIndex; i < drawnLength; i++) {
+                out.append('\b');
+            }
+        }
+        for (int i = Math.min(dirtyIndex, drawnLength); i < length; i++) {
+            out.append(getDrawnChar(i));
+        }
+        
+        drawnLength = length;
+        dirtyIndex = Integer.MAX_VALUE;
+        isCursorDirty = false;
+        
+        return countCellsAfterCursor();
+    }
+    
+    /**
+     * Returns the text of the line.
+     * 
+     * @return the line as a string
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(length());
+        sb.append(buffer, 0, gapStart);
+        sb.append(buffer, gapEnd, buffer.length - gapEnd);
+        return sb.toString();
+    }
+    
+    /*
+     * Gets the character at the specified index on the line as it is drawn.
+     */
+    private char getDrawnChar(int index)
+    {
+        if (mask != 0) {
+            return mask;
+        }
+        
+        return index < gapStart
+                ? buffer[index]
+                : buffer[index + gapEnd - gapStart];
+    }
+    
+    /*
+     * Counts the screen cells taken up by the characters after the cursor. A
+     * color escape (^ followed by a digit) doesn't take up any cells.
+     */
+    private int countCellsAfterCursor()
+    {
+        int length = length();
+        int cells = 0;
+        boolean isEscapeStarted = false;
+        char c;
+        
+        for (int i = 0; i < length; i++) {
+            c = getDrawnChar(i);
+            
+            if (isEscapeStarted && c >= '0' && c <= '9') {
+                // The escape character before the digit disappears
+                if (i - 1 >= gapStart) {
+                    cells--;
+                }
+                isEscapeStarted = false;
+                continue;
+            }
+            
+            if (i >= gapStart) {
+                cells++;
+            }
+            isEscapeStarted = c == ScreenBuffer.COLOR_ESCAPE_CHAR;
+        }
+        
+        return cells;
+    }
+    
+    /*
+     * Moves the cursor to the specified index by moving the gap.
+     */
+    private void moveCursor(int index)
+    {
+        int gapLength = gapEnd - gapStart;
+        
+        if (index < gapStart) {
+            System.arraycopy(buffer, index, buffer, index + gapLength,
+                    gapStart - index);
+        } else if (index > gapStart) {
+            System.arraycopy(buffer, gapEnd, buffer, gapStart,
+                    index - gapStart);
+        }
+        
+        gapStart = index;
+        gapEnd = index + gapLength;
+        isCursorDirty = true;
+    }
+    
+    /*
+     * Doubles the size of the buffer, up to the maximum line length.
+     */
+    private void grow()
+    {
+        int size = Math.min(buffer.length * 2, maxLength);
+        char[] newBuffer = new char[size];
+        int tailLength = buffer.length - gapEnd;
+        
+        System.arraycopy(buffer, 0, newBuffer, 0, gapStart);
+        System.arraycopy(buffer, gapEnd, newBuffer, size - tailLength,
+                tailLength);
+        
+        gapEnd = size - tailLength;
+        buffer = newBuffer;
+    }
+    
+    /*
+     * Remembers that the line has changed from the specified index onwards.
+     */
+    private void markDirty(int index)
+    {
+        dirtyIndex = Math.min(dirtyIndex, index);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+/**
+ * A {@code LineWrapper} lays out text for the screen one character at a time.
+ * <p>
+ * Tabs are expanded to spaces and a newline is put in wherever the screen
+ * would wrap a line that is too long. Color escapes take up no room. Because
+ * the wrapper only remembers the current column and whether the last
+ * character might start a color escape, text can be laid out as it is read,
+ * in pieces of any size.
+ * <p>
+ * The layout assumes that the text is printed starting at the left edge of
+ * the screen.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+final class LineWrapper
+{
+    private final int columns;
+    
+    private int x;
+    private boolean isEscapePending;
+    
+    /**
+     * Creates a new {@code LineWrapper} at the start of a line.
+     * 
+     * @param columns the width of the screen in characters
+     */
+    LineWrapper(int columns)
+    {
+        if (columns < 1) {
+            throw new IllegalArgumentException(
+                    "columns must be a positive integer");
+        }
+        
+        this.columns = columns;
+        
+        x = 0;
+        isEscapePending = false;
+    }
+    
+    /**
+     * Lays out the next character of the text.
+     * 
+     * @param c the character
+     * @param out the buffer to append the laid-out characters to
+     */
+    void append(char c, StringBuilder out)
+    {
+        // Decide whether the last character started a color escape
+        if (isEscapePending) {
+            isEscapePending = false;
+            if (c >= '0' && c <= '9') {
+                out.append(ScreenBuffer.COLOR_ESCAPE_CHAR).append(c);
+                return;
+            }
+            out.append(ScreenBuffer.COLOR_ESCAPE_CHAR);
+            x++;
+        }
+        
+        // Break the line if the next character won't fit
+        if (x > columns - 1 && c != '\n' && c != '\b') {
+            out.append('\n');
+            x = 0;
+        }
+        
+        switch (c) {
+            case '\n':
+                out.append(c);
+                x = 0;
+                break;
+            case '\b':
+                out.append(c);
+                x = Math.max(x - 1, 0);
+                break;
+            case '\t':
+                // Expand to reach the next tab stop on this line
+                do {
+                    out.append(' ');
+                    x++;
+                } while (x % ScreenBuffer.TAB_LENGTH != 0 && x < columns);
+                break;
+            case ScreenBuffer.COLOR_ESCAPE_CHAR:
+                // Wait for the next character to see if this is an escape
+                isEscapePending = true;
+                break;
+            default:
+                out.append(c);
+                x++;
+        }
+    }
+    
+    /**
+     * Lays out anything held back at the end of the text.
+     * 
+     * @param out the buffer to append the laid-out characters to
+     */
+    void finish(StringBuilder out)
+    {
+        if (isEscapePending) {
+            isEscapePending = false;
+            out.append(ScreenBuffer.COLOR_ESCAPE_CHAR);
+            x++;
+        }
+    }
+}
@@ -111,7 +111,7 @@ public final class LoginShell extends Shell
         }
         
         if (args[0].equals("intel") || args[0].equals("unlock")) {
-            Terminal.println("Cheat Enabled!");
+            Terminal.writeln("Cheat Enabled!");
         }
     }
     
@@ -154,7 +154,7 @@ public final class LoginShell extends Shell
             
             // Print prompt
             prompt = getPrompt();
-            Terminal.print(prompt);
+            Terminal.write(prompt);
             
             /* Reset the prompt to default if it has changed since the last
                command was executed */
@@ -209,7 +209,7 @@ public final class LoginShell extends Shell
             
             // Print error message if an executable with matching name not found
             if (exe == null) {
-                Terminal.println("Error:  Unknown Command - try \"help\"");
+                Terminal.writeln("Error:  Unknown Command - try \"help\"");
                 continue;
             }
             
@@ -24,6 +24,9 @@
 
 package thehambone.blackopsterminalemulator;
 
+import java.io.IOException;
+import java.io.Reader;
+import thehambone.blackopsterminalemulator.io.Logger;
 import thehambone.blackopsterminalemulator.io.ResourceLoader;
 
 /**
@@ -102,13 +105,23 @@ public final class Mail
      */
     public void open()
     {
-        // Load file data
-        String fileData = ResourceLoader.loadTextFile(getResourceName());
+        // Stream files that are too large to keep in memory
+        if (ResourceLoader.isLargeTextFile(getResourceName())) {
+            try (Reader in = ResourceLoader.openTextFile(getResourceName())) {
+                Terminal.print(in);
+            } catch (IOException ex) {
+                Logger.stackTrace(ex);
+            }
+            return;
+        }
+        
+        // Load and lay out the mail body, unless it is already in the cache
+        PagedText body = ResourceLoader.loadPagedTextFile(getResourceName());
         
         // Output the contents of the file
-        /* Print entire file as a single string to allow for the "--MORE--"
-           pager prompt to show */
-        Terminal.print(fileData);
+        /* Print entire file at once to allow for the "--MORE--" pager prompt
+           to show */
+        Terminal.print(body);
     }
     
     @Override
@@ -24,6 +24,8 @@
 
 package thehambone.blackopsterminalemulator;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import javax.swing.UIManager;
@@ -47,8 +49,11 @@ import thehambone.blackopsterminalemulator.filesystem.command.MoreCommand;
 import thehambone.blackopsterminalemulator.filesystem.command.RloginCommand;
 import thehambone.blackopsterminalemulator.filesystem.command.WhoCommand;
 import thehambone.blackopsterminalemulator.filesystem.command.ZorkCommand;
+import thehambone.blackopsterminalemulator.io.ImageDiskCache;
 import thehambone.blackopsterminalemulator.io.Logger;
+import thehambone.blackopsterminalemulator.io.ResourceCache;
 import thehambone.blackopsterminalemulator.io.ResourceLoader;
+import thehambone.blackopsterminalemulator.io.ResourcePack;
 import thehambone.blackopsterminalemulator.util.UncaughtExceptionHandler;
 
 /**
@@ -75,7 +80,15 @@ public class Main
     public static final String PROGRAM_COPYRIGHT
             = "Copyright (C) 2015-2016 " + PROGRAM_AUTHOR + ".";
     
+    private static final String DEFAULT_HISTORY_FILE = ".blote_history";
+    private static final String DEFAULT_DATA_PACK = "data.pak";
+    private static final String DEFAULT_IMAGE_DISK_CACHE = ".blote_cache";
+    
     private static boolean debug = false;
+    private static String historyFile = DEFAULT_HISTORY_FILE;
+    private static String dataPack = DEFAULT_DATA_PACK;
+    private static String imageDiskCache = DEFAULT_IMAGE_DISK_CACHE;
+    private static boolean warmImageDiskCache = false;
     
     /**
      * Program entry point.
@@ -96,6 +109,16 @@ public class Main
         initUncaughtExceptionHandler();
         initLookAndFeel();
         parseCommandLine(args);
+        initResourcePack();
+        initImageDiskCache();
+        
+        if (warmImageDiskCache) {
+            int count = ResourceLoader.warmImageDiskCache();
+            Logger.info("Added %d images to the image cache\n", count);
+            System.exit(0);
+        }
+        
+        initCommandHistory();
         
         Map<String, Class<? extends ExecutableFile>> executables;
         Server lastServer;
@@ -149,16 +172,18 @@ public class Main
         }
         
         /* Format: '--option' or '--option=ARGUMENT' */
-        String arg = "";
+        String arg;
         String[] optArg;
         for (String opt : opts) {
             // Split option and argument by equals sign
             optArg = opt.split("=");
             opt = optArg[0];
             
-            // Concatenate remaining argument tokens into one
+            /* Concatenate remaining argument tokens into one. An option
+               without an argument, or with an empty one ('--option='), gets
+               an empty argument rather than the previous option's. */
+            arg = "";
             if (optArg.length > 1) {
-                arg = "";
                 for (int i = 1; i < optArg.length; i++) {
                     arg += optArg[i];
                 }
@@ -174,10 +199,192 @@ public class Main
                     ResourceLoader.setDataDirectory(arg);
                     Logger.info("Data directory set to '%s'\n", arg);
                     break;
+                case "--data-pack":
+                    dataPack = arg;
+                    if (arg.isEmpty()) {
+                        Logger.info("Resource pack disabled.");
+                    } else {
+                        Logger.info("Resource pack set to '%s'\n", arg);
+                    }
+                    break;
+                case "--image-disk-cache":
+                    imageDiskCache = arg;
+                    if (arg.isEmpty()) {
+                        Logger.info("Image disk cache disabled.");
+                    } else {
+                        Logger.info("Image disk cache set to '%s'\n", arg);
+                    }
+                    break;
+                case "--warm-image-cache":
+                    warmImageDiskCache = true;
+                    break;
+                case "--fps":
+                    try {
+                        Terminal.getScreen().setFrameRate(
+                                Integer.parseInt(arg));
+                        Logger.info("Frame rate set to %s\n", arg);
+                    } catch (IllegalArgumentException ex) {
+                        Logger.error("Invalid frame rate: %s\n", arg);
+                    }
+                    break;
+                case "--baud":
+                    try {
+                        Terminal.getOutputPacer().setBaudRate(
+                                Integer.parseInt(arg));
+                        Logger.info("Baud rate set to %s\n", arg);
+                    } catch (IllegalArgumentException ex) {
+                        Logger.error("Invalid baud rate: %s\n", arg);
+                    }
+                    break;
+                case "--turbo":
+                    Terminal.getOutputPacer().setTurboModeEnabled(true);
+                    Logger.info("Turbo mode enabled.");
+                    break;
+                case "--scrollback-lines":
+                    try {
+                        getScrollback().setMaxLines(Integer.parseInt(arg));
+                        Logger.info("Scrollback limited to %s lines\n", arg);
+                    } catch (IllegalArgumentException ex) {
+                        Logger.error("Invalid scrollback line limit: %s\n",
+                                arg);
+                    }
+                    break;
+                case "--scrollback-bytes":
+                    try {
+                        getScrollback().setMaxBytes(Integer.parseInt(arg));
+                        Logger.info("Scrollback limited to %s bytes\n", arg);
+                    } catch (IllegalArgumentException ex) {
+                        Logger.error("Invalid scrollback byte limit: %s\n",
+                                arg);
+                    }
+                    break;
+                case "--text-cache-bytes":
+                    setCacheBudget(ResourceLoader.getTextCache(), "Text", arg);
+                    break;
+                case "--image-cache-bytes":
+                    setCacheBudget(ResourceLoader.getImageCache(), "Image",
+                            arg);
+                    break;
+                case "--sound-cache-bytes":
+                    setCacheBudget(ResourceLoader.getSoundCache(), "Sound",
+                            arg);
+                    break;
+                case "--history-size":
+                    try {
+                        Terminal.getCommandHistory().setCapacity(
+                                Integer.parseInt(arg));
+                        Logger.info("History size set to %s\n", arg);
+                    } catch (IllegalArgumentException ex) {
+                        Logger.error("Invalid history size: %s\n", arg);
+                    }
+                    break;
+                case "--history-file":
+                    historyFile = arg;
+                    if (arg.isEmpty()) {
+                        Logger.info("History will not be saved.");
+                    } else {
+                        Logger.info("History file set to '%s'\n", arg);
+                    }
+                    break;
             }
         }
     }
     
+    /*
+     * Sets the byte budget of a resource cache from a command-line argument.
+     */
+    private static void setCacheBudget(ResourceCache<?> cache, String name,
+            String arg)
+    {
+        try {
+            cache.setMaxBytes(Long.parseLong(arg));
+            Logger.info("%s cache limited to %s bytes\n", name, arg);
+        } catch (IllegalArgumentException ex) {
+            Logger.error("Invalid %s cache size: %s\n",
+                    name.toLowerCase(), arg);
+        }
+    }
+    
+    /*
+     * Opens the resource pack, if there is one. Resources are loaded from the
+     * data directory if the default pack doesn't exist.
+     */
+    private static void initResourcePack()
+    {
+        if (dataPack.isEmpty()) {
+            return;
+        }
+        
+        File packFile = new File(dataPack);
+        if (!packFile.isFile()) {
+            if (!dataPack.equals(DEFAULT_DATA_PACK)) {
+                Logger.error("Resource pack not found: '%s'\n", dataPack);
+            }
+            return;
+        }
+        
+        try {
+            ResourcePack pack = new ResourcePack(packFile);
+            ResourceLoader.setResourcePack(pack);
+            Logger.info("Loaded resource pack '%s' (%d resources)\n",
+                    dataPack, pack.getEntryCount());
+        } catch (IOException ex) {
+            Logger.error("Failed to open resource pack '%s'\n", dataPack);
+            Logger.stackTrace(ex);
+        }
+    }
+    
+    /*
+     * Sets up the disk cache that keeps images scaled for the screen.
+     */
+    private static void initImageDiskCache()
+    {
+        if (imageDiskCache.isEmpty()) {
+            return;
+        }
+        
+        ResourceLoader.setImageDiskCache(
+                new ImageDiskCache(new File(imageDiskCache)));
+    }
+    
+    /*
+     * Loads the command history from the history file and makes sure that new
+     * entries are written to it when the program exits.
+     */
+    private static void initCommandHistory()
+    {
+        final CommandHistory history = Terminal.getCommandHistory();
+        
+        if (historyFile.isEmpty()) {
+            return;
+        }
+        
+        try {
+            history.open(new File(historyFile));
+        } catch (IOException ex) {
+            Logger.error("Failed to open history file '%s'\n", historyFile);
+            Logger.stackTrace(ex);
+            return;
+        }
+        
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                history.close();
+            }
+        });
+    }
+    
+    /*
+     * Gets the scrollback of the terminal screen.
+     */
+    private static ScrollbackBuffer getScrollback()
+    {
+        return Terminal.getScreen().getScreenBuffer().getScrollback();
+    }
+    
     /*
      * Invokes the default login shell and shows the terminal window.
      */
@@ -196,7 +403,7 @@ public class Main
             Terminal.pushLoginShell(defaultLoginShell);
             defaultLoginShell.exec();
             Terminal.printMOTD();
-            Terminal.print(defaultLoginShell.getPrompt());
+            Terminal.write(defaultLoginShell.getPrompt());
         }
     }
     
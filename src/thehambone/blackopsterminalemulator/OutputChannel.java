@@ -0,0 +1,352 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import thehambone.blackopsterminalemulator.io.Logger;
+import thehambone.blackopsterminalemulator.util.MpscQueue;
+
+/**
+ * An {@code OutputChannel} lets any thread print to a {@link Screen}.
+ * <p>
+ * Only one thread may change the contents of a screen. Instead of printing
+ * directly, threads add output to a lock-free queue, and a single drain
+ * thread owned by the channel takes the output off the queue and puts it on
+ * the screen in the order in which it was added.
+ * <p>
+ * Output is added as a {@link Batch} of segments: text, images, and changes
+ * to the cursor and text color. All of the segments in a batch are put on the
+ * screen together, so the output of one thread never ends up in the middle
+ * of a batch added by another thread. Each of the single-segment methods adds
+ * a batch of its own.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class OutputChannel
+{
+    private final Screen screen;
+    private final MpscQueue<Batch> queue;
+    private final Thread drainThread;
+    
+    /**
+     * Creates a new {@code OutputChannel} and starts its drain thread. Once
+     * the channel has been created, nothing else may print to the screen
+     * directly.
+     * 
+     * @param screen the screen to print to
+     */
+    public OutputChannel(Screen screen)
+    {
+        this.screen = screen;
+        queue = new MpscQueue<>();
+        
+        drainThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                drain();
+            }
+        }, "Screen Output");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+    
+    /**
+     * Adds a batch of output to the channel. The batch must not be changed
+     * after it has been added.
+     * 
+     * @param batch the output to add
+     */
+    public void submit(Batch batch)
+    {
+        if (!batch.segments.isEmpty()) {
+            queue.offer(batch);
+        }
+    }
+    
+    /**
+     * Adds a character to the channel.
+     * 
+     * @param c the character to print
+     */
+    public void write(char c)
+    {
+        submit(new Batch().write(c));
+    }
+    
+    /**
+     * Adds a range of characters to the channel. The characters are copied.
+     * 
+     * @param s the characters to print
+     * @param start the index of the first character to print
+     * @param end the index after the last character to print
+     */
+    public void write(CharSequence s, int start, int end)
+    {
+        submit(new Batch().write(s, start, end));
+    }
+    
+    /**
+     * Adds a range of characters to the channel. The characters are copied.
+     * 
+     * @param chars the array containing the characters to print
+     * @param offset the index of the first character to print
+     * @param length the number of characters to print
+     */
+    public void write(char[] chars, int offset, int length)
+    {
+        submit(new Batch().write(chars, offset, length));
+    }
+    
+    /**
+     * Adds an image to the channel.
+     * 
+     * @param image the image to print, already scaled for the screen
+     */
+    public void writeImage(BufferedImage image)
+    {
+        submit(new Batch().writeImage(image));
+    }
+    
+    /**
+     * Runs a task on the drain thread once the output added before it has
+     * been put on the screen, and waits for the task to finish. This is how
+     * other threads read the state of the screen without racing the drain
+     * thread. If this is called from the drain thread, the task is run right
+     * away.
+     * 
+     * @param task the task to run
+     * @param timeoutMillis the longest time to wait for the task, in
+     *                      milliseconds
+     * @return {@code true} if the task finished, {@code false} if it did not
+     *         finish in time
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting
+     */
+    public boolean runAndWait(final Runnable task, long timeoutMillis)
+            throws InterruptedException
+    {
+        if (Thread.currentThread() == drainThread) {
+            task.run();
+            return true;
+        }
+        
+        final CountDownLatch done = new CountDownLatch(1);
+        Batch batch = new Batch();
+        batch.segments.add(new Segment(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    task.run();
+                } finally {
+                    done.countDown();
+                }
+            }
+        }));
+        queue.offer(batch);
+        
+        return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /*
+     * Puts the output on the screen as it arrives. This runs on the drain
+     * thread, which is the only thread that prints to the screen. A batch
+     * that fails is logged and skipped so that later output is still shown.
+     */
+    private void drain()
+    {
+        while (true) {
+            Batch batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            
+            try {
+                for (Segment seg : batch.segments) {
+                    seg.apply(screen);
+                }
+            } catch (RuntimeException ex) {
+                Logger.stackTrace(ex);
+            }
+        }
+    }
+    
+    /**
+     * A {@code Batch} is a sequence of output that is put on the screen
+     * without output from other threads in between.
+     */
+    public static final class Batch
+    {
+        private final List<Segment> segments;
+        
+        /**
+         * Creates an empty {@code Batch}.
+         */
+        public Batch()
+        {
+            segments = new ArrayList<>(2);
+        }
+        
+        /**
+         * Adds a character to the batch.
+         * 
+         * @param c the character to print
+         * @return this batch
+         */
+        public Batch write(char c)
+        {
+            segments.add(new Segment(Segment.CHAR, null, null, c));
+            return this;
+        }
+        
+        /**
+         * Adds a range of characters to the batch. The characters are copied.
+         * 
+         * @param s the characters to print
+         * @param start the index of the first character to print
+         * @param end the index after the last character to print
+         * @return this batch
+         */
+        public Batch write(CharSequence s, int start, int end)
+        {
+            if (start < end) {
+                String text = s.subSequence(start, end).toString();
+                segments.add(new Segment(Segment.TEXT, text, null, 0));
+            }
+            return this;
+        }
+        
+        /**
+         * Adds a range of characters to the batch. The characters are copied.
+         * 
+         * @param chars the array containing the characters to print
+         * @param offset the index of the first character to print
+         * @param length the number of characters to print
+         * @return this batch
+         */
+        public Batch write(char[] chars, int offset, int length)
+        {
+            if (length > 0) {
+                String text = new String(chars, offset, length);
+                segments.add(new Segment(Segment.TEXT, text, null, 0));
+            }
+            return this;
+        }
+        
+        /**
+         * Adds an image to the batch.
+         * 
+         * @param image the image to print, already scaled for the screen
+         * @return this batch
+         */
+        public Batch writeImage(BufferedImage image)
+        {
+            segments.add(new Segment(Segment.IMAGE, null, image, 0));
+            return this;
+        }
+        
+        /**
+         * Adds a cursor move to the batch.
+         * 
+         * @param cells the number of cells between the cursor and the end of
+         *              the text
+         * @return this batch
+         * @see Screen#setCursorOffset(int)
+         */
+        public Batch setCursorOffset(int cells)
+        {
+            segments.add(new Segment(Segment.CURSOR_OFFSET, null, null, cells));
+            return this;
+        }
+    }
+    
+    /*
+     * A single piece of output.
+     */
+    private static final class Segment
+    {
+        private static final int CHAR = 0;
+        private static final int TEXT = 1;
+        private static final int IMAGE = 2;
+        private static final int CURSOR_OFFSET = 3;
+        private static final int TASK = 4;
+        
+        private final int type;
+        private final String text;
+        private final BufferedImage image;
+        private final int value;
+        private final Runnable task;
+        
+        private Segment(int type, String text, BufferedImage image, int value)
+        {
+            this.type = type;
+            this.text = text;
+            this.image = image;
+            this.value = value;
+            task = null;
+        }
+        
+        private Segment(Runnable task)
+        {
+            type = TASK;
+            text = null;
+            image = null;
+            value = 0;
+            this.task = task;
+        }
+        
+        private void apply(Screen screen)
+        {
+            switch (type) {
+                case CHAR:
+                    screen.print((char)value);
+                    break;
+                case TEXT:
+                    screen.print(text, 0, text.length());
+                    break;
+                case IMAGE:
+                    screen.printImage(image);
+                    break;
+                case CURSOR_OFFSET:
+                    screen.setCursorOffset(value);
+                    break;
+                case TASK:
+                    task.run();
+                    break;
+            }
+        }
+    }
+}
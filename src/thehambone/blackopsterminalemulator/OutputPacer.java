@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An {@code OutputPacer} limits how fast text is printed to the screen in
+ * order to simulate a terminal connected over a slow serial line.
+ * <p>
+ * The pacer is a token bucket. Tokens are added at the rate at which
+ * characters can be sent at the current baud rate, and each printed character
+ * uses up one token. When the bucket is empty, the printing thread sleeps for
+ * at least one tick and is then released with all of the characters that
+ * became available in the meantime, so output advances in small batches
+ * instead of one sleep per character. The bucket holds no more than a couple
+ * of ticks' worth of characters, so output does not burst after a pause.
+ * <p>
+ * In turbo mode, output is not limited at all. A waiting thread is woken as
+ * soon as turbo mode is turned on or {@link #wakeUp()} is called, however low
+ * the baud rate is.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class OutputPacer
+{
+    /**
+     * The baud rate used by default, which prints text at about the same
+     * speed as the terminal in the game.
+     */
+    public static final int DEFAULT_BAUD_RATE = 9600;
+    
+    // One start bit, eight data bits and one stop bit
+    private static final int BITS_PER_CHARACTER = 10;
+    
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    
+    private volatile int baudRate;
+    private volatile boolean isTurboModeEnabled;
+    private volatile boolean isWakeUpRequested;
+    private volatile Thread waiter;
+    
+    private double tokens;
+    private long lastRefillTime;
+    
+    /**
+     * Creates a new {@code OutputPacer} running at the default baud rate.
+     */
+    public OutputPacer()
+    {
+        baudRate = DEFAULT_BAUD_RATE;
+        isTurboModeEnabled = false;
+        isWakeUpRequested = false;
+        waiter = null;
+        
+        tokens = 0;
+        lastRefillTime = System.nanoTime();
+    }
+    
+    /**
+     * Gets the speed at which characters are printed.
+     * 
+     * @return the baud rate in bits per second
+     */
+    public int getBaudRate()
+    {
+        return baudRate;
+    }
+    
+    /**
+     * Sets the speed at which characters are printed.
+     * 
+     * @param baudRate the baud rate in bits per second
+     * @throws IllegalArgumentException if the baud rate is not positive
+     */
+    public void setBaudRate(int baudRate)
+    {
+        if (baudRate < 1) {
+            throw new IllegalArgumentException(
+                    "Baud rate must be positive: " + baudRate);
+        }
+        
+        this.baudRate = baudRate;
+    }
+    
+    /**
+     * Checks whether output is printed as fast as possible.
+     * 
+     * @return {@code true} if turbo mode is enabled, {@code false} otherwise
+     */
+    public boolean isTurboModeEnabled()
+    {
+        return isTurboModeEnabled;
+    }
+    
+    /**
+     * Turns turbo mode on or off. In turbo mode, output is not limited by the
+     * baud rate. Turning turbo mode on takes effect immediately, even for a
+     * thread that is waiting in {@link #acquire(int)}.
+     * 
+     * @param enabled {@code true} to print output as fast as possible
+     */
+    public void setTurboModeEnabled(boolean enabled)
+    {
+        isTurboModeEnabled = enabled;
+        LockSupport.unpark(waiter);
+    }
+    
+    /**
+     * Wakes the thread that is waiting in {@link #acquire(int)}, which then
+     * returns 0 so that its caller can decide whether to keep waiting. If no
+     * thread is waiting, the next wait returns right away instead.
+     */
+    public void wakeUp()
+    {
+        isWakeUpRequested = true;
+        LockSupport.unpark(waiter);
+    }
+    
+    /**
+     * Waits until at least one character may be printed and takes as many
+     * characters as are available, up to a maximum. This method should only
+     * be called by one thread.
+     * <p>
+     * If the calling thread is interrupted, it stops waiting and may print
+     * everything; its interrupt status is left set.
+     * 
+     * @param max the number of characters waiting to be printed
+     * @return the number of characters that may be printed now, between 1 and
+     *         {@code max}; 0 if {@code max} is 0 or the thread was woken by
+     *         {@link #wakeUp()}
+     */
+    public int acquire(int max)
+    {
+        if (max < 1) {
+            return 0;
+        }
+        
+        Thread current = Thread.currentThread();
+        waiter = current;
+        try {
+            refill();
+            while (tokens < 1 && !isTurboModeEnabled) {
+                if (isWakeUpRequested) {
+                    isWakeUpRequested = false;
+                    return 0;
+                }
+                if (current.isInterrupted()) {
+                    return max;
+                }
+                
+                // Park until the next character is ready, but at least a tick
+                long wait = (long)((1 - tokens) * getNanosPerCharacter());
+                LockSupport.parkNanos(this, Math.max(wait, TICK_NANOS));
+                refill();
+            }
+        } finally {
+            waiter = null;
+        }
+        
+        if (isTurboModeEnabled) {
+            return max;
+        }
+        
+        int n = (int)Math.min(max, tokens);
+        tokens -= n;
+        return n;
+    }
+    
+    /*
+     * Adds the tokens earned since the last refill to the bucket.
+     */
+    private void refill()
+    {
+        long now = System.nanoTime();
+        double nanosPerChar = getNanosPerCharacter();
+        
+        /* Hold at most two ticks' worth of characters, but at least one, so
+           that oversleeping a tick doesn't slow the output down */
+        double capacity = Math.max(2 * TICK_NANOS / nanosPerChar, 1);
+        
+        tokens = Math.min(tokens + (now - lastRefillTime) / nanosPerChar,
+                capacity);
+        lastRefillTime = now;
+    }
+    
+    /*
+     * Gets the time it takes to send one character at the current baud rate.
+     */
+    private double getNanosPerCharacter()
+    {
+        return (double)NANOS_PER_SECOND * BITS_PER_CHARACTER / baudRate;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.util.Arrays;
+
+/**
+ * A {@code PagedText} is a piece of text that has been laid out for printing
+ * on the terminal, one page at a time.
+ * <p>
+ * The layout is worked out once, when the {@code PagedText} is created, by a
+ * {@link LineWrapper}. Tabs are expanded to spaces and lines that are too
+ * long for the screen are broken with newlines at the same places the screen
+ * would wrap them. Color escapes take up no room on the screen. The end of
+ * every line is recorded, along with the points at which a page's worth of
+ * lines has been printed, so the text can be printed a page at a time without
+ * counting characters again.
+ * <p>
+ * The layout assumes that the text is printed starting at the left edge of
+ * the screen.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class PagedText
+{
+    private final int pageLength;
+    
+    private final String text;
+    private final int[] lineEnds;
+    private final int lineCount;
+    
+    /**
+     * Lays out text for printing.
+     * 
+     * @param s the text to lay out
+     * @param columns the width of the screen in characters
+     * @param pageLength the number of lines on a page
+     */
+    public PagedText(String s, int columns, int pageLength)
+    {
+        if (columns < 1 || pageLength < 1) {
+            throw new IllegalArgumentException(
+                    "columns and pageLength must be positive integers");
+        }
+        
+        this.pageLength = pageLength;
+        
+        LineWrapper wrapper = new LineWrapper(columns);
+        StringBuilder out = new StringBuilder(s.length() + s.length() / 16);
+        int[] ends = new int[s.length() / columns + 16];
+        int lines = 0;
+        int start;
+        
+        for (int i = 0; i <= s.length(); i++) {
+            start = out.length();
+            if (i < s.length()) {
+                wrapper.append(s.charAt(i), out);
+            } else {
+                wrapper.finish(out);
+            }
+            
+            // Record the end of each line that was finished
+            for (int j = start; j < out.length(); j++) {
+                if (out.charAt(j) == '\n') {
+                    if (lines == ends.length) {
+                        ends = Arrays.copyOf(ends, lines * 2);
+                    }
+                    ends[lines++] = j + 1;
+                }
+            }
+        }
+        
+        text = out.toString();
+        lineEnds = ends;
+        lineCount = lines;
+    }
+    
+    /**
+     * Gets the laid-out text.
+     * 
+     * @return the text, with tabs expanded and long lines broken
+     */
+    public String getText()
+    {
+        return text;
+    }
+    
+    /**
+     * Gets the number of characters in the laid-out text.
+     * 
+     * @return the length of the text
+     */
+    public int length()
+    {
+        return text.length();
+    }
+    
+    /**
+     * Gets the number of complete lines, which is the number of lines in the
+     * text not counting an unfinished line at the end.
+     * 
+     * @return the number of lines that end with a newline
+     */
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+    
+    /**
+     * Gets the number of full pages. Printing stops to wait for the user after
+     * each full page.
+     * 
+     * @return the number of pages that fill the screen
+     */
+    public int getPageCount()
+    {
+        return lineCount / pageLength;
+    }
+    
+    /**
+     * Gets the position in the laid-out text at which a full page ends.
+     * 
+     * @param page the page number, starting at 0
+     * @return the index after the last character on the page
+     */
+    public int getPageEnd(int page)
+    {
+        if (page < 0 || page >= getPageCount()) {
+            throw new IndexOutOfBoundsException(
+                    "Page: " + page + ", Pages: " + getPageCount());
+        }
+        
+        return lineEnds[(page + 1) * pageLength - 1];
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.awt.Color;
+
+/**
+ * A {@code Palette} maps the color attributes stored in the screen buffer to
+ * {@link java.awt.Color} objects.
+ * <p>
+ * A color attribute is a packed {@code int}. The high byte holds the type of
+ * the color and the low three bytes hold its value:
+ * <ul>
+ * <li>{@link #DEFAULT_COLOR}: the foreground color of the screen</li>
+ * <li>indexed: one of the {@value #SIZE} palette entries</li>
+ * </ul>
+ * The first palette entries are the {@code Screen.ScreenColor} constants, so
+ * the color control characters ({@code ^0} to {@code ^9}) map straight to
+ * them. Entries 16 to 231 are a 6x6x6 color cube and entries 232 to 255 are a
+ * grayscale ramp, like on an xterm.
+ * <p>
+ * All of the palette colors are created up front, so drawing never creates
+ * new {@code Color} objects.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class Palette
+{
+    /**
+     * The color attribute of cells that are drawn in the foreground color of
+     * the screen.
+     */
+    public static final int DEFAULT_COLOR = 0;
+    
+    /**
+     * The number of indexed colors.
+     */
+    public static final int SIZE = 256;
+    
+    private static final int TYPE_MASK = 0xFF000000;
+    private static final int VALUE_MASK = 0x00FFFFFF;
+    private static final int TYPE_INDEXED = 0x01000000;
+    
+    private static final int CUBE_START = 16;
+    private static final int GRAY_START = 232;
+    
+    // Entries 10 to 15 are not used by the game; fill them in like an xterm
+    private static final int[] EXTRA_COLORS = {
+        0x00FF00, 0xFFFF00, 0x5C5CFF, 0xFF00FF, 0x00FFFF, 0xFFFFFF
+    };
+    
+    private final Color[] colors;
+    
+    /**
+     * Creates a new {@code Palette}.
+     */
+    public Palette()
+    {
+        colors = new Color[SIZE];
+        
+        // Game colors
+        Screen.ScreenColor[] screenColors = Screen.ScreenColor.values();
+        for (Screen.ScreenColor sc : screenColors) {
+            colors[sc.getID()] = sc.getColor();
+        }
+        for (int i = screenColors.length; i < CUBE_START; i++) {
+            colors[i] = new Color(EXTRA_COLORS[i - screenColors.length]);
+        }
+        
+        // Color cube
+        for (int i = CUBE_START; i < GRAY_START; i++) {
+            int n = i - CUBE_START;
+            colors[i] = new Color(cubeLevel(n / 36), cubeLevel(n / 6 % 6),
+                    cubeLevel(n % 6));
+        }
+        
+        // Grayscale ramp
+        for (int i = GRAY_START; i < SIZE; i++) {
+            int level = 8 + (i - GRAY_START) * 10;
+            colors[i] = new Color(level, level, level);
+        }
+    }
+    
+    /**
+     * Creates a color attribute that refers to a palette entry.
+     * 
+     * @param index the palette index
+     * @return the packed color attribute
+     * @throws IllegalArgumentException if the index is out of range
+     */
+    public static int indexed(int index)
+    {
+        if (index < 0 || index > SIZE - 1) {
+            throw new IllegalArgumentException(
+                    "Index: " + index + ", Size: " + SIZE);
+        }
+        
+        return TYPE_INDEXED | index;
+    }
+    
+    /**
+     * Checks whether a color attribute refers to a palette entry.
+     * 
+     * @param attribute the packed color attribute
+     * @return {@code true} if the attribute is an indexed color,
+     *         {@code false} otherwise
+     */
+    public static boolean isIndexed(int attribute)
+    {
+        return (attribute & TYPE_MASK) == TYPE_INDEXED;
+    }
+    
+    /**
+     * Gets the value of a color attribute, which is the palette index of an
+     * indexed color.
+     * 
+     * @param attribute the packed color attribute
+     * @return the color value
+     */
+    public static int getValue(int attribute)
+    {
+        return attribute & VALUE_MASK;
+    }
+    
+    /**
+     * Gets a palette entry.
+     * 
+     * @param index the palette index
+     * @return the color at the specified index
+     * @throws ArrayIndexOutOfBoundsException if the index is out of range
+     */
+    public Color getColor(int index)
+    {
+        return colors[index];
+    }
+    
+    /**
+     * Converts a color attribute to a {@code Color}.
+     * 
+     * @param attribute the packed color attribute
+     * @param defaultColor the color to use for {@link #DEFAULT_COLOR}
+     * @return the color described by the attribute
+     */
+    public Color resolve(int attribute, Color defaultColor)
+    {
+        if (isIndexed(attribute)) {
+            return colors[getValue(attribute)];
+        }
+        
+        return defaultColor;
+    }
+    
+    /*
+     * Gets the intensity of a step of the color cube.
+     */
+    private static int cubeLevel(int step)
+    {
+        return step == 0 ? 0 : 55 + step * 40;
+    }
+}
@@ -30,24 +30,45 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.JComponent;
 import javax.swing.JMenuItem;
 import javax.swing.Timer;
-import thehambone.blackopsterminalemulator.io.Logger;
 
 /**
  * This class represents the terminal screen. It is responsible for displaying
  * text and images.
  * <p>
+ * Printing does not paint the screen directly. Instead, changes are collected
+ * until the next frame, and frames are drawn at a fixed rate, so a burst of
+ * output results in a single repaint per frame. Each frame only redraws the
+ * changed cells onto a back buffer that holds the rendered screen; painting
+ * the component just copies the back buffer and draws the cursor on top.
+ * <p>
+ * The screen buffer belongs to the thread that prints to the screen. After
+ * each change, that thread publishes a {@link ScreenFrame} snapshot through an
+ * atomic reference, and the event dispatch thread draws the latest snapshot.
+ * Neither thread ever waits for the other.
+ * <p>
  * Created on Nov 18, 2015.
  *
  * @author Wes Hampson
  */
 public final class Screen
 {
+    /**
+     * The default number of frames drawn per second.
+     */
+    public static final int DEFAULT_FRAME_RATE = 60;
+    
     private static final int TEXT_HORIZONTAL_OFFSET = 2;
     private static final int TEXT_VERTICAL_OFFSET = -2;
     
@@ -57,27 +78,45 @@ public final class Screen
     private static final int PADDING_X = 8;
     private static final int PADDING_Y = -2;
     
-    private static final char COLOR_ESCAPE_CHAR = '^';
-    
-    private final Object paintLock;
+    private static final int MOUSE_WHEEL_SCROLL_LINES = 3;
     
     private final ScreenBuffer screenBuffer;
     
+    private final AtomicReference<ScreenFrame> pendingFrame;
+    private final AtomicReference<ScreenFrame> spareFrame;
+    private ScreenFrame frame;
+    
     private final int columns;
     private final int lines;
     
-    private Color background;
-    private Color foreground;
+    private volatile Color background;
+    private volatile Color foreground;
     
-    private Font font;
+    private volatile Font font;
     private int charWidth;
     private int charHeight;
     
     private final int cursorBlinkRate;
     private boolean isCursorVisible;
+    private long lastOutputTime;
+    
+    private final Timer renderTimer;
+    private final AtomicBoolean isFullFrameDirty;
+    private boolean isCursorDirty;
     
     private JComponent component;
     
+    private final char[] lineChars;
+    private final int[] lineColors;
+    private int scrollOffset;
+    
+    private int cursorCellX;
+    private int cursorCellY;
+    
+    private BufferedImage backBuffer;
+    private GlyphAtlas glyphAtlas;
+    private final Palette palette;
+    
     /**
      * Creates a new {@code Screen}.
      * 
@@ -95,8 +134,6 @@ public final class Screen
             ScreenColor background, ScreenColor foreground,
             Font font, int cursorBlinkRate)
     {
-        paintLock = new Object();
-        
         this.columns = columns;
         this.lines = lines;
         
@@ -109,17 +146,63 @@ public final class Screen
         
         this.cursorBlinkRate = cursorBlinkRate;
         isCursorVisible = true;
+        lastOutputTime = 0;
+        
+        lineChars = new char[columns];
+        lineColors = new int[columns];
+        scrollOffset = 0;
+        
+        cursorCellX = 0;
+        cursorCellY = 0;
+        
+        backBuffer = null;
+        glyphAtlas = null;
+        palette = new Palette();
         
         initComponent();
         
         screenBuffer = new ScreenBuffer(columns, lines, charWidth, charHeight);
         
+        // Capture the lines that fit in the component
+        frame = new ScreenFrame(columns, lines + 2);
+        pendingFrame = new AtomicReference<>();
+        spareFrame = new AtomicReference<>();
+        
+        isFullFrameDirty = new AtomicBoolean(false);
+        isCursorDirty = false;
+        renderTimer = new Timer(1000 / DEFAULT_FRAME_RATE, new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                renderFrame();
+            }
+        });
+        renderTimer.setCoalesce(true);
+        renderTimer.start();
+        
         blinkCursor();
     }
     
+    /**
+     * Sets the maximum number of frames drawn per second.
+     * 
+     * @param fps the new frame rate
+     */
+    public void setFrameRate(int fps)
+    {
+        if (fps < 1) {
+            throw new IllegalArgumentException(
+                    "fps must be a positive integer");
+        }
+        
+        renderTimer.setDelay(Math.max(1000 / fps, 1));
+    }
+    
     /**
      * Gets the {@code ScreenBuffer} that contains all of the items currently
-     * displayed on the screen.
+     * displayed on the screen. The buffer should only be used by the thread
+     * that prints to the screen.
      * 
      * @return the {@code ScreenBuffer} object associated with this screen
      */
@@ -157,6 +240,7 @@ public final class Screen
     public void setBackground(ScreenColor background)
     {
         this.background = background.getColor();
+        invalidateFrame();
     }
     
     /**
@@ -178,6 +262,7 @@ public final class Screen
     public void setForeground(ScreenColor foreground)
     {
         this.foreground = foreground.getColor();
+        invalidateFrame();
     }
     
     public Font getFont()
@@ -189,30 +274,462 @@ public final class Screen
     {
         font = f;
         component.invalidate();
-        component.repaint();
+        invalidateFrame();
         //component.setPreferredSize(calculateComponentSize());
     }
     
     /**
-     * Draws a character on the screen after the previous screen item.
+     * Draws a character on the screen after the previous screen item. Only one
+     * thread may print to the screen.
      * 
      * @param c the character to be drawn
      */
     public void print(char c)
     {
         screenBuffer.putChar(c);
-        component.repaint();
+        publishFrame();
+    }
+    
+    /**
+     * Draws a range of characters on the screen after the previous screen
+     * item. The screen is updated once, after all of the characters have been
+     * drawn. Only one thread may print to the screen.
+     * 
+     * @param s the characters to be drawn
+     * @param start the index of the first character to draw
+     * @param end the index after the last character to draw
+     */
+    public void print(CharSequence s, int start, int end)
+    {
+        for (int i = start; i < end; i++) {
+            screenBuffer.putChar(s.charAt(i));
+        }
+        publishFrame();
+    }
+    
+    /**
+     * Draws a range of characters on the screen after the previous screen
+     * item. The screen is updated once, after all of the characters have been
+     * drawn. Only one thread may print to the screen.
+     * 
+     * @param chars the array containing the characters to be drawn
+     * @param offset the index of the first character to draw
+     * @param length the number of characters to draw
+     */
+    public void print(char[] chars, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++) {
+            screenBuffer.putChar(chars[i]);
+        }
+        publishFrame();
+    }
+    
+    /**
+     * Moves the cursor back from the end of the text by a number of cells.
+     * The cursor returns to the end of the text when something else is
+     * printed. Only one thread may print to the screen.
+     * 
+     * @param cells the number of cells between the cursor and the end of the
+     *              text
+     * @see ScreenBuffer#setCursorOffset(int)
+     */
+    public void setCursorOffset(int cells)
+    {
+        screenBuffer.setCursorOffset(cells);
+        publishFrame();
     }
     
     /**
-     * Draws an image on the screen after the previous screen item.
+     * Draws an image on the screen after the previous screen item. The image
+     * is drawn at its actual size; see
+     * {@link ScreenBuffer#scaleImage(BufferedImage)}. Only one thread may
+     * print to the screen.
      * 
      * @param image the image to be drawn
      */
     public void printImage(BufferedImage image)
     {
         screenBuffer.putImage(image);
-        component.repaint();
+        publishFrame();
+    }
+    
+    /**
+     * Scrolls the view up into the scrollback. This method should only be
+     * called from the event dispatch thread.
+     * 
+     * @param n the number of lines to scroll
+     */
+    public void scrollUp(int n)
+    {
+        int historyLines = frame.getScrollback().getLineCount();
+        setScrollOffset(Math.min(scrollOffset + n, historyLines));
+    }
+    
+    /**
+     * Scrolls the view down towards the bottom of the screen. This method
+     * should only be called from the event dispatch thread.
+     * 
+     * @param n the number of lines to scroll
+     */
+    public void scrollDown(int n)
+    {
+        setScrollOffset(Math.max(scrollOffset - n, 0));
+    }
+    
+    /**
+     * Scrolls the view up by one screenful. This method should only be called
+     * from the event dispatch thread.
+     */
+    public void pageUp()
+    {
+        scrollUp(lines - 1);
+    }
+    
+    /**
+     * Scrolls the view down by one screenful. This method should only be
+     * called from the event dispatch thread.
+     */
+    public void pageDown()
+    {
+        scrollDown(lines - 1);
+    }
+    
+    /**
+     * Scrolls the view back to the bottom of the screen so that the cursor is
+     * visible. This method should only be called from the event dispatch
+     * thread.
+     */
+    public void scrollToBottom()
+    {
+        setScrollOffset(0);
+    }
+    
+    /*
+     * Sets the number of scrollback lines shown above the screen lines.
+     */
+    private void setScrollOffset(int offset)
+    {
+        if (offset != scrollOffset) {
+            scrollOffset = offset;
+            invalidateFrame();
+        }
+    }
+    
+    /*
+     * Captures the screen buffer in a frame and hands it to the event dispatch
+     * thread. If the previous frame has not been drawn yet, it is replaced and
+     * its changes are carried over to the new frame.
+     */
+    private void publishFrame()
+    {
+        ScreenFrame next = spareFrame.getAndSet(null);
+        ScreenFrame prev;
+        
+        if (next == null) {
+            next = new ScreenFrame(columns, lines + 2);
+        }
+        next.capture(screenBuffer);
+        
+        while (true) {
+            prev = pendingFrame.get();
+            if (prev != null) {
+                next.merge(prev);
+            }
+            
+            if (pendingFrame.compareAndSet(prev, next)) {
+                break;
+            }
+            
+            /* The previous frame was taken while the changes were being
+               merged, so the merged changes no longer add up; redraw it all */
+            next.invalidate();
+        }
+        
+        // The replaced frame was never seen by the event dispatch thread
+        if (prev != null) {
+            spareFrame.set(prev);
+        }
+    }
+    
+    /*
+     * Makes the cursor visible and holds off blinking for a while. This is
+     * called whenever a new frame arrives.
+     */
+    private void showCursor()
+    {
+        lastOutputTime = System.currentTimeMillis();
+        
+        if (!isCursorVisible) {
+            isCursorVisible = true;
+            isCursorDirty = true;
+        }
+    }
+    
+    /*
+     * Marks the whole screen as needing to be redrawn on the next frame.
+     */
+    private void invalidateFrame()
+    {
+        isFullFrameDirty.set(true);
+    }
+    
+    /*
+     * Draws the next frame if anything has changed since the last one. This
+     * method runs on the event dispatch thread each time the render timer
+     * fires.
+     */
+    private void renderFrame()
+    {
+        ScreenFrame next = pendingFrame.getAndSet(null);
+        boolean isFullRedraw = isFullFrameDirty.getAndSet(false);
+            
+        if (next == null && !isFullRedraw && !isCursorDirty) {
+            return;
+        }
+        
+        // Switch to the new frame and let the old one be reused
+        if (next != null) {
+            spareFrame.set(frame);
+            frame = next;
+            showCursor();
+        }
+        
+        composeFrame(next != null, isFullRedraw);
+        isCursorDirty = false;
+    }
+    
+    /*
+     * Redraws the cells that have changed in the current frame onto the back
+     * buffer and schedules them to be repainted, along with the cells under
+     * the old and new cursor positions.
+     */
+    private void composeFrame(boolean isNewFrame, boolean isFullRedraw)
+    {
+        int offset = scrollOffset;
+        int x = frame.getCursorX();
+        int y = frame.getCursorY();
+        int scrolledLines = isNewFrame ? frame.getScrolledLines() : 0;
+        int scrolledHeight = scrolledLines * charHeight;
+        Rectangle bounds;
+        Graphics2D g2d;
+        
+        if (!prepareBackBuffer() || isFullRedraw
+                || (isNewFrame && frame.isAllDirty())
+                || (scrolledLines > 0 && offset > 0)
+                || scrolledHeight >= backBuffer.getHeight()) {
+            // Redraw everything
+            drawScreen(new Rectangle(0, 0, backBuffer.getWidth(),
+                    backBuffer.getHeight()));
+            component.repaint();
+        } else {
+            // Move the lines that are still visible up
+            if (scrolledLines > 0) {
+                g2d = backBuffer.createGraphics();
+                g2d.copyArea(0, scrolledHeight, backBuffer.getWidth(),
+                        backBuffer.getHeight() - scrolledHeight,
+                        0, -scrolledHeight);
+                g2d.dispose();
+                
+                /* Draw the lines that scrolled into view, and the top line
+                   since glyphs from the line above it were moved onto it */
+                drawScreen(new Rectangle(0,
+                        backBuffer.getHeight() - scrolledHeight - charHeight,
+                        backBuffer.getWidth(), scrolledHeight + charHeight));
+                drawScreen(new Rectangle(0, 0, backBuffer.getWidth(),
+                        charHeight));
+                component.repaint();
+            }
+            
+            // Redraw the changed span of each line
+            for (int i = frame.getDirtyTop();
+                    isNewFrame && i <= frame.getDirtyBottom(); i++) {
+                int start = frame.getDirtyStart(i);
+                int end = frame.getDirtyEnd(i);
+                if (start < end) {
+                    bounds = getCellBounds(start, i + offset, end - start, 1);
+                    drawScreen(bounds);
+                    component.repaint(bounds);
+                }
+            }
+            
+            /* The cursor is not part of the back buffer, so it only needs to
+               be repainted */
+            if (x != cursorCellX || y != cursorCellY) {
+                component.repaint(
+                        getCellBounds(cursorCellX, cursorCellY, 1, 1));
+                component.repaint(getCellBounds(x, y, 1, 1));
+            } else if (isCursorDirty) {
+                component.repaint(getCellBounds(x, y, 1, 1));
+            }
+        }
+        
+        cursorCellX = x;
+        cursorCellY = y;
+    }
+    
+    /*
+     * Makes sure the back buffer exists and matches the size of the component.
+     * Returns false if the back buffer had to be created, in which case it
+     * needs to be drawn completely.
+     */
+    private boolean prepareBackBuffer()
+    {
+        int width = Math.max(component.getWidth(), 1);
+        int height = Math.max(component.getHeight(), 1);
+        GraphicsConfiguration gc;
+        
+        if (backBuffer != null && backBuffer.getWidth() == width
+                && backBuffer.getHeight() == height) {
+            return true;
+        }
+        
+        // Use an image that matches the display for faster drawing
+        gc = component.getGraphicsConfiguration();
+        if (gc != null) {
+            backBuffer = gc.createCompatibleImage(width, height);
+        } else {
+            backBuffer = new BufferedImage(width, height,
+                    BufferedImage.TYPE_INT_RGB);
+        }
+        
+        return false;
+    }
+    
+    /*
+     * Gets the area covered by a block of cells. The area is made a bit larger
+     * than the cells so that it covers glyphs that stick out of their cells as
+     * well as the cursor.
+     */
+    private Rectangle getCellBounds(int x, int y, int width, int height)
+    {
+        return new Rectangle(x * charWidth + TEXT_HORIZONTAL_OFFSET - 1,
+                y * charHeight + TEXT_VERTICAL_OFFSET,
+                width * charWidth + 2,
+                height * charHeight - TEXT_VERTICAL_OFFSET * 2 + 1);
+    }
+    
+    /*
+     * Draws the part of the current frame inside the specified area onto the
+     * back buffer.
+     */
+    private void drawScreen(Rectangle clip)
+    {
+        Graphics2D g2d = backBuffer.createGraphics();
+        ScrollbackBuffer.Snapshot scrollback;
+        BufferedImage img;
+        int y;
+        int length;
+        int historyLines;
+        int offset;
+        int firstLine;
+        int lastLine;
+        int firstColumn;
+        int lastColumn;
+        
+        // Only the cells inside the clip area need to be drawn
+        g2d.setClip(clip);
+        firstLine = Math.max(clip.y / charHeight - 1, 0);
+        lastLine = (clip.y + clip.height) / charHeight + 1;
+        firstColumn = Math.max(
+                (clip.x - TEXT_HORIZONTAL_OFFSET) / charWidth - 1, 0);
+        lastColumn = (clip.x + clip.width) / charWidth + 1;
+        
+        // Draw background
+        g2d.setColor(background);
+        g2d.fillRect(clip.x, clip.y, clip.width, clip.height);
+        
+        // Draw foreground
+        g2d.setFont(font);
+        
+        // Determine how far the view is scrolled back
+        scrollback = frame.getScrollback();
+        historyLines = scrollback.getLineCount();
+        offset = Math.min(scrollOffset, historyLines);
+        
+        // Draw the scrollback lines above the screen lines
+        for (y = firstLine; y < offset && y < lines && y <= lastLine; y++) {
+            length = scrollback.getLine(historyLines - offset + y,
+                    lineChars, lineColors);
+            drawLine(g2d, lineChars, lineColors, firstColumn,
+                    Math.min(length, lastColumn + 1), y);
+        }
+        
+        // Draw each line
+        for (y = 0; y < frame.getLineCount(); y++) {
+            // Draw image
+            img = frame.getImage(y);
+            if (img != null && clip.intersects(IMAGE_HORIZONTAL_OFFSET,
+                    (y + offset) * charHeight + IMAGE_VERTICAL_OFFSET,
+                    img.getWidth(), img.getHeight())) {
+                g2d.drawImage(img, null,
+                        0 * charWidth + IMAGE_HORIZONTAL_OFFSET,
+                        (y + offset) * charHeight + IMAGE_VERTICAL_OFFSET);
+            }
+            
+            // Skip text outside of the clip area
+            if (y + offset < firstLine || y + offset > lastLine) {
+                continue;
+            }
+            
+            // Draw text
+            length = frame.getLine(y, lineChars, lineColors);
+            drawLine(g2d, lineChars, lineColors, firstColumn,
+                    Math.min(length, lastColumn + 1), y + offset);
+        }
+        
+        g2d.dispose();
+    }
+    
+    /*
+     * Gets the glyph atlas for the current font, creating it if the font has
+     * changed.
+     */
+    private GlyphAtlas getGlyphAtlas()
+    {
+        if (glyphAtlas == null || glyphAtlas.getFont() != font) {
+            glyphAtlas = new GlyphAtlas(font, component.getFontMetrics(font),
+                    component.getGraphicsConfiguration());
+        }
+        
+        return glyphAtlas;
+    }
+    
+    /*
+     * Draws part of a line of text at the specified line on the component.
+     */
+    private void drawLine(Graphics2D g2d, char[] text, int[] colors,
+            int start, int end, int y)
+    {
+        GlyphAtlas atlas = getGlyphAtlas();
+        int color = Palette.DEFAULT_COLOR;
+        
+        // Lines start in the foreground color
+        Color textColor = foreground;
+        
+        for (int x = start; x < end; x++) {
+            // Change text color
+            if (colors[x] != color) {
+                color = colors[x];
+                textColor = palette.resolve(color, foreground);
+            }
+            
+            // Draw character
+            atlas.drawGlyph(g2d, text[x], textColor,
+                    x * charWidth + TEXT_HORIZONTAL_OFFSET,
+                    (y + 1) * charHeight + TEXT_VERTICAL_OFFSET);
+        }
+    }
+    
+    /*
+     * Draws the cursor at the specified cell.
+     */
+    private void drawCursor(Graphics2D g2d, int x, int y)
+    {
+        g2d.setColor(foreground);
+        g2d.drawLine(x * charWidth + TEXT_HORIZONTAL_OFFSET + 1,
+                (y + 1) * charHeight - TEXT_VERTICAL_OFFSET,
+                (x + 1) * charWidth + TEXT_HORIZONTAL_OFFSET,
+                (y + 1) * charHeight - TEXT_VERTICAL_OFFSET);
     }
     
     /*
@@ -231,11 +748,15 @@ public final class Screen
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                // Toggle isVisible boolean and repaint screen
-                synchronized (paintLock) {
-                    isCursorVisible = !isCursorVisible;
-                    component.repaint();
+                // Toggle isVisible boolean and redraw cursor on the next frame
+                // Hold the cursor steady while output is streaming
+                if (System.currentTimeMillis() - lastOutputTime
+                        < cursorBlinkRate) {
+                    return;
                 }
+                    
+                isCursorVisible = !isCursorVisible;
+                isCursorDirty = true;
             }
         };
         
@@ -260,124 +781,49 @@ public final class Screen
                 super.paintComponent(g);
                 Graphics2D g2d = (Graphics2D)g;
                 
-                ScreenItem item;
-                BufferedImage img;
-                char c;
-                char c1;                
                 int x;
                 int y;
-                int colorID;
-                int colorCharOffset; /* Used to keep cursor aligned after a
-                                       color char is typed */
-                x = 0;
-                y = 0;
-                colorCharOffset = 0;
+                boolean isCursorShown;
                 
-                // Draw background
-                g2d.setColor(background);
-                g2d.fillRect(0, 0, getWidth(), getHeight());
-                
-                // Draw foreground
-                g2d.setColor(foreground);
-                g2d.setFont(font);
-                
-                synchronized (paintLock) {
-                    // Draw each screen item
-                    for (int i = 0; i < screenBuffer.getLength(); i++) {
-                        // Get next item
-                        item = screenBuffer.itemAt(i);
-                        
-                        /* For some reason, a null item is retrieved every once
-                           in a while, which can cause a NullPointerException.
-                           I'll investigate this in the future. For now, log it
-                           and ignore it.
-                        */
-                        // TODO: Investigate null items (concurrency issue?)
-                        if (item == null) {
-                            Logger.error("null screen item at screen buffer "
-                                    + "index %d: (x: %d, y: %d)\n", i, x, y);
-                            continue;
-                        }
-                        
-                        // Draw image
-                        if (item.hasImage()) {
-                            img = item.getImage();
-                            g2d.drawImage(img, null,
-                                    0 * charWidth + IMAGE_HORIZONTAL_OFFSET,
-                                    y * charHeight + IMAGE_VERTICAL_OFFSET);
-                            y += screenBuffer.countImageLines(img);
-                            continue;
-                        }
-                        
-                        // Get character
-                        c = item.getCharacter();
-                        
-                        // Handle newlines
-                        if (c == '\n') {
-                            x = 0;
-                            y++;
-                            g2d.setColor(foreground);
-                            colorCharOffset = 0;
-                            continue;
-                        }
-                        
-                        // Handle line wrapping
-                        if (x > columns - 1) {
-                            x = 0;
-                            y++;
-                            g2d.setColor(foreground);
-                        }
-                        
-                        // Handle color control characters
-                        if (c == COLOR_ESCAPE_CHAR
-                                && i != screenBuffer.getLength() - 1) {
-                            
-                            // Get next character (color code)
-                            c1 = screenBuffer.itemAt(i + 1).getCharacter();
-                            
-                            // Get integer value of ASCII character
-                            colorID = c1 - 0x30;
-                            
-                            // Change text color if color code is valid
-                            if (colorID >= 0 && colorID <= 9) {
-                                for (ScreenColor sc : ScreenColor.values()) {
-                                    if (colorID == sc.getID()) {
-                                        g2d.setColor(sc.getColor());
-                                        break;
-                                    }
-                                }
-                                
-                                // Needed to keep cursor aligned
-                                colorCharOffset += 2;
-                                
-                                i++;
-                                continue;
-                            }
-                        }
-                        
-                        // Draw character
-                        g2d.drawString(Character.toString(c),
-                                x * charWidth + TEXT_HORIZONTAL_OFFSET,
-                                (y + 1) * charHeight + TEXT_VERTICAL_OFFSET);
-                        x++;
-                    }
+                // Draw the whole back buffer if it is not ready yet
+                if (!prepareBackBuffer()) {
+                    drawScreen(new Rectangle(0, 0, backBuffer.getWidth(),
+                            backBuffer.getHeight()));
                 }
-                
-                if (isCursorVisible) {
-                    // Get cursor coordinates
-                    x = screenBuffer.getCursorX() - colorCharOffset;
-                    y = screenBuffer.getCursorY();
                     
-                    // Draw cursor
-                    g2d.setColor(foreground);
-                    g2d.drawLine(x * charWidth + TEXT_HORIZONTAL_OFFSET + 1,
-                            (y + 1) * charHeight - TEXT_VERTICAL_OFFSET,
-                            (x + 1) * charWidth + TEXT_HORIZONTAL_OFFSET,
-                            (y + 1) * charHeight - TEXT_VERTICAL_OFFSET);
+                // Get cursor coordinates
+                x = frame.getCursorX();
+                y = frame.getCursorY();
+                    
+                // Hide the cursor while the view is scrolled back
+                isCursorShown = isCursorVisible && (scrollOffset == 0
+                        || frame.getScrollback().getLineCount() == 0);
+                    
+                // Copy the back buffer onto the screen
+                g2d.drawImage(backBuffer, 0, 0, null);
+                
+                // Draw the cursor on top of the screen
+                if (isCursorShown) {
+                    drawCursor(g2d, x, y);
                 }
             }
         };
         
+        // Scroll through the scrollback with the mouse wheel
+        component.addMouseWheelListener(new MouseWheelListener()
+        {
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e)
+            {
+                int n = e.getWheelRotation() * MOUSE_WHEEL_SCROLL_LINES;
+                if (n < 0) {
+                    scrollUp(-n);
+                } else {
+                    scrollDown(n);
+                }
+            }
+        });
+        
         component.setPreferredSize(calculateComponentSize());
     }
     
@@ -432,9 +878,7 @@ public final class Screen
         DARK_YELLOW(9, 127, 127, 0);
         
         private final int id;
-        private final int r;
-        private final int g;
-        private final int b;
+        private final Color color;
         
         /**
          * Creates a new {@code ScreenColor} constant.
@@ -447,9 +891,7 @@ public final class Screen
         private ScreenColor(int id, int r, int g, int b)
         {
             this.id = id;
-            this.r = r;
-            this.g = g;
-            this.b = b;
+            color = new Color(r, g, b);
         }
         
         /**
@@ -470,7 +912,7 @@ public final class Screen
          */
         public Color getColor()
         {
-            return new Color(r, g, b);
+            return color;
         }
     }
 }
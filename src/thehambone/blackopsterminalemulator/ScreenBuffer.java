@@ -30,9 +30,7 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.Arrays;
 import thehambone.blackopsterminalemulator.util.Debuggable;
 
 /**
@@ -40,6 +38,21 @@ import thehambone.blackopsterminalemulator.util.Debuggable;
  * screen. It is also responsible for removing items once they go off-screen as
  * well as keeping track of the cursor position.
  * <p>
+ * Characters are stored in a fixed grid of cells. Each line of the grid
+ * remembers how many cells it is using and how it was ended (by a newline, by
+ * wrapping at the right edge of the screen, or by an image). Lines are kept in
+ * a ring so that scrolling only needs to move the index of the top line;
+ * writing a character and scrolling a line are both constant-time operations.
+ * <p>
+ * Color control characters (a {@code ^} followed by a digit) are consumed as
+ * they are written. Instead of taking up cells, they set the color attribute
+ * of the cells that follow, up to the end of the line. Color attributes are
+ * packed as described in {@link Palette}.
+ * <p>
+ * The buffer also keeps track of which cells have changed since the last time
+ * the screen was repainted, as a span of columns on each line, and of how many
+ * lines have scrolled off the top, so that only those cells need to be redrawn.
+ * <p>
  * Created on Nov 18, 2015.
  *
  * @author Wes Hampson
@@ -51,16 +64,78 @@ public final class ScreenBuffer implements Debuggable
      */
     public static final int TAB_LENGTH = 4;
     
-    private static final float IMAGE_SCALE_FACTOR = 0.66f;
+    /**
+     * The character that starts a color escape when it is followed by a
+     * digit.
+     */
+    public static final char COLOR_ESCAPE_CHAR = '^';
+    
+    /* Color escapes are remembered so that they can be erased one character at
+       a time, like they could be when they were stored as plain text. */
+    private static final int MAX_COLOR_ESCAPES = 64;
+    
+    /**
+     * The factor by which images are scaled before they are put on the
+     * screen.
+     */
+    public static final float IMAGE_SCALE_FACTOR = 0.66f;
+    
+    /* The cursor may be moved well below the bottom of the screen by a run of
+       newlines (e.g. the "clear" command), so the ring holds more lines than
+       are visible. */
+    private static final int RING_CAPACITY_FACTOR = 3;
+    
+    // Line endings
+    private static final byte LINE_OPEN = 0;
+    private static final byte LINE_NEWLINE = 1;
+    private static final byte LINE_WRAP = 2;
+    private static final byte LINE_IMAGE = 3;
+    
+    // Item types, used when erasing
+    private static final int ITEM_NONE = 0;
+    private static final int ITEM_CHAR = 1;
+    private static final int ITEM_NEWLINE = 2;
+    private static final int ITEM_IMAGE = 3;
     
     private final int columns;
     private final int lines;
     private final int charWidth;
     private final int charHeight;
-    private final List<ScreenItem> buf;
+    
+    private final int capacity;
+    private final char[] cells;
+    private final int[] attributes;
+    private final int[] lineLength;
+    private final byte[] lineEnd;
+    private final BufferedImage[] lineImage;
+    private final int[] lineImageColumn;
+    private final int[] lineEndColor;
+    
+    private final long[] escapeLine;
+    private final int[] escapeColumn;
+    private final int[] escapeColor;
+    private int escapeCount;
+    
+    private final ScrollbackBuffer scrollback;
+    
+    private int head;
+    private int lineCount;
+    private long trimmedLines;
+    
+    private int color;
     
     private int cursorX;
     private int cursorY;
+    private boolean hasCursorOffset;
+    private int offsetCursorX;
+    private int offsetCursorY;
+    
+    private final int[] dirtyStart;
+    private final int[] dirtyEnd;
+    private int dirtyTop;
+    private int dirtyBottom;
+    private int scrolledLines;
+    private boolean allDirty;
     
     /**
      * Creates a new {@code ScreenBuffer}.
@@ -77,27 +152,49 @@ public final class ScreenBuffer implements Debuggable
         this.charWidth = charWidth;
         this.charHeight = charHeight;
         
-        buf = new ArrayList<>();
+        capacity = lines * RING_CAPACITY_FACTOR;
+        cells = new char[capacity * columns];
+        attributes = new int[capacity * columns];
+        lineLength = new int[capacity];
+        lineEnd = new byte[capacity];
+        lineImage = new BufferedImage[capacity];
+        lineImageColumn = new int[capacity];
+        lineEndColor = new int[capacity];
+        
+        escapeLine = new long[MAX_COLOR_ESCAPES];
+        escapeColumn = new int[MAX_COLOR_ESCAPES];
+        escapeColor = new int[MAX_COLOR_ESCAPES];
+        escapeCount = 0;
+        
+        scrollback = new ScrollbackBuffer(ScrollbackBuffer.DEFAULT_MAX_LINES,
+                ScrollbackBuffer.DEFAULT_MAX_BYTES);
+        
+        head = 0;
+        lineCount = 1;
+        trimmedLines = 0;
+        
+        color = Palette.DEFAULT_COLOR;
         
         cursorX = 0;
         cursorY = 0;
+        hasCursorOffset = false;
+        offsetCursorX = 0;
+        offsetCursorY = 0;
+        
+        dirtyStart = new int[capacity];
+        dirtyEnd = new int[capacity];
+        clearDirty();
     }
     
     /**
-     * Returns the item at the specified index.
+     * Gets the {@code ScrollbackBuffer} that receives the lines scrolled off
+     * the top of the screen.
      * 
-     * @param index the index of the desired item
-     * @return the item at the specified index
-     * @throws IndexOutOfBoundsException if the specified index is out of bounds
+     * @return the scrollback associated with this screen buffer
      */
-    public ScreenItem itemAt(int index)
+    public ScrollbackBuffer getScrollback()
     {
-        if (index < 0 || index > buf.size() - 1) {
-            throw new IndexOutOfBoundsException(
-                    "Index: " + index + ", Size" + buf.size());
-        }
-        
-        return buf.get(index);
+        return scrollback;
     }
     
     /**
@@ -123,13 +220,109 @@ public final class ScreenBuffer implements Debuggable
     }
     
     /**
-     * Returns the number of items currently in the buffer.
+     * Returns the number of lines currently in the buffer. This is always at
+     * least 1; the last line is the one that the next character will be
+     * written to.
+     * 
+     * @return the buffer line count
+     */
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+    
+    /**
+     * Returns the number of cells in use on a line.
      * 
-     * @return the buffer item count
+     * @param y the line number, 0 being the top line on the screen
+     * @return the number of characters on the line
+     * @throws IndexOutOfBoundsException if the specified line is out of bounds
      */
-    public int getLength()
+    public int getLineLength(int y)
     {
-        return buf.size();
+        return lineLength[physicalLine(y)];
+    }
+    
+    /**
+     * Returns the character at the specified cell.
+     * 
+     * @param x the column number
+     * @param y the line number, 0 being the top line on the screen
+     * @return the character at the specified cell
+     * @throws IndexOutOfBoundsException if the specified cell is out of bounds
+     */
+    public char getChar(int x, int y)
+    {
+        if (x < 0 || x > columns - 1) {
+            throw new IndexOutOfBoundsException(
+                    "Column: " + x + ", Columns: " + columns);
+        }
+        
+        return cells[physicalLine(y) * columns + x];
+    }
+    
+    /**
+     * Returns the color attribute of the specified cell.
+     * 
+     * @param x the column number
+     * @param y the line number, 0 being the top line on the screen
+     * @return the packed color attribute of the cell
+     * @throws IndexOutOfBoundsException if the specified cell is out of bounds
+     */
+    public int getColor(int x, int y)
+    {
+        if (x < 0 || x > columns - 1) {
+            throw new IndexOutOfBoundsException(
+                    "Column: " + x + ", Columns: " + columns);
+        }
+        
+        return attributes[physicalLine(y) * columns + x];
+    }
+    
+    /**
+     * Copies the characters on a line and their color attributes into arrays.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @param chars the array to copy the characters into; must be able to hold
+     *              a full line
+     * @param colors the array to copy the color attributes into; must be able
+     *               to hold a full line
+     * @return the number of characters on the line
+     * @throws IndexOutOfBoundsException if the specified line is out of bounds
+     */
+    public int getLine(int y, char[] chars, int[] colors)
+    {
+        int p = physicalLine(y);
+        System.arraycopy(cells, p * columns, chars, 0, lineLength[p]);
+        System.arraycopy(attributes, p * columns, colors, 0, lineLength[p]);
+        return lineLength[p];
+    }
+    
+    /**
+     * Returns the image that starts on the specified line.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @return the image drawn from the top of the line, {@code null} if there
+     *         is no image on the line
+     * @throws IndexOutOfBoundsException if the specified line is out of bounds
+     */
+    public BufferedImage getImage(int y)
+    {
+        return lineImage[physicalLine(y)];
+    }
+    
+    /**
+     * Checks whether a line was ended by a newline character, as opposed to
+     * being wrapped at the edge of the screen or pushed down by an image.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @return {@code true} if the line ends with a newline, {@code false}
+     *         otherwise
+     * @throws IndexOutOfBoundsException if the specified line is out of bounds
+     */
+    public boolean endsWithNewline(int y)
+    {
+        return lineEnd[physicalLine(y)] == LINE_NEWLINE;
     }
     
     /**
@@ -139,7 +332,7 @@ public final class ScreenBuffer implements Debuggable
      */
     public int getCursorX()
     {
-        return cursorX;
+        return hasCursorOffset ? offsetCursorX : cursorX;
     }
     
     /**
@@ -149,7 +342,126 @@ public final class ScreenBuffer implements Debuggable
      */
     public int getCursorY()
     {
-        return cursorY;
+        return hasCursorOffset ? offsetCursorY : cursorY;
+    }
+    
+    /**
+     * Moves the cursor back from the end of the text by a number of cells,
+     * following the text up across wrapped lines. This lets the cursor point
+     * into a line that is being edited. The cursor returns to the end of the
+     * text when the next item is added to the buffer.
+     * 
+     * @param cells the number of cells between the cursor and the end of the
+     *              text; 0 puts the cursor back where the next item will go
+     */
+    public void setCursorOffset(int cells)
+    {
+        if (cells < 1) {
+            hasCursorOffset = false;
+            return;
+        }
+        
+        int y = lineCount - 1;
+        int x = lineLength[physicalLine(y)] - cells;
+        
+        // Move up through the lines above until the cell is reached
+        while (x < 0 && y > 0) {
+            y--;
+            x += lineLength[physicalLine(y)];
+        }
+        
+        hasCursorOffset = true;
+        offsetCursorX = Math.max(x, 0);
+        offsetCursorY = y;
+    }
+    
+    /**
+     * Checks whether the whole screen needs to be redrawn, for example because
+     * an image was removed.
+     * 
+     * @return {@code true} if every cell has changed since the last call to
+     *         {@link #clearDirty()}, {@code false} otherwise
+     */
+    public boolean isAllDirty()
+    {
+        return allDirty;
+    }
+    
+    /**
+     * Returns the number of lines that have scrolled off the top of the screen
+     * since the last call to {@link #clearDirty()}. The dirty spans are
+     * relative to the scrolled lines.
+     * 
+     * @return the number of scrolled lines
+     */
+    public int getScrolledLines()
+    {
+        return scrolledLines;
+    }
+    
+    /**
+     * Returns the first line that has changed since the last call to
+     * {@link #clearDirty()}. If no line has changed, this is greater than the
+     * value returned by {@link #getDirtyBottom()}.
+     * 
+     * @return the top dirty line
+     */
+    public int getDirtyTop()
+    {
+        return dirtyTop;
+    }
+    
+    /**
+     * Returns the last line that has changed since the last call to
+     * {@link #clearDirty()}. If no line has changed, this is less than the
+     * value returned by {@link #getDirtyTop()}.
+     * 
+     * @return the bottom dirty line
+     */
+    public int getDirtyBottom()
+    {
+        return dirtyBottom;
+    }
+    
+    /**
+     * Returns the first column of the changed span on a line.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @return the first dirty column, equal to {@link #getDirtyEnd(int)} if
+     *         nothing on the line has changed
+     */
+    public int getDirtyStart(int y)
+    {
+        return dirtyStart[y];
+    }
+    
+    /**
+     * Returns the column after the end of the changed span on a line.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @return the column after the last dirty column, equal to
+     *         {@link #getDirtyStart(int)} if nothing on the line has changed
+     */
+    public int getDirtyEnd(int y)
+    {
+        return dirtyEnd[y];
+    }
+    
+    /**
+     * Marks every cell as clean. This should be called once the changed cells
+     * have been scheduled for repainting.
+     */
+    public void clearDirty()
+    {
+        for (int y = dirtyTop; y <= dirtyBottom; y++) {
+            dirtyStart[y] = 0;
+            dirtyEnd[y] = 0;
+        }
+        
+        dirtyTop = capacity;
+        dirtyBottom = -1;
+        scrolledLines = 0;
+        allDirty = false;
     }
     
     /**
@@ -160,6 +472,8 @@ public final class ScreenBuffer implements Debuggable
      */
     public void putChar(char c)
     {    
+        hasCursorOffset = false;
+        
         /* Due to the lazyness of Black Ops's programmers, I had to incorporate
            some convoluted logic here in order to get some text output to behave
            in the same manner as is does on the actual terminal.
@@ -175,36 +489,42 @@ public final class ScreenBuffer implements Debuggable
         // Handle backspace
         if (c == '\b') {
             
-            // Do nothing if the buffer is already empty
-            if (buf.isEmpty()) {
+            // Erase a color escape by bringing back its escape character
+            if (eraseColorEscape()) {
                 return;
             }
             
-            // Get the last item in the buffer
-            ScreenItem item = buf.get(buf.size() - 1);
+            // Do nothing if the buffer is already empty
+            int item = lastItem();
+            if (item == ITEM_NONE) {
+                return;
+            }
             
             // Do nothing if the item is an image
-            if (item.hasImage()) {
+            if (item == ITEM_IMAGE) {
                 return;
             }
             
             // Handle line wrapping
-            if (cursorX == 0 && item.getCharacter() == '\n') {
+            if (cursorX == 0 && item == ITEM_NEWLINE) {
                 
                 // Remove newline
-                buf.remove(item);
+                removeLastItem(item);
                 
                 // End if buffer is empty
-                if (buf.isEmpty()) {
+                item = lastItem();
+                if (item == ITEM_NONE) {
                     return;
                 }
                 
-                // Get next item before newline
-                item = buf.get(buf.size() - 1);
+                // The line above might end with a color escape
+                if (eraseColorEscape()) {
+                    return;
+                }
             }
             
             // Delete the last item in the buffer
-            buf.remove(item);
+            removeLastItem(item);
             
             /* The Black Ops devs screwed up right here -- theoretically, the
                cursor should move up a line if the cursor hits the left edge of
@@ -225,19 +545,37 @@ public final class ScreenBuffer implements Debuggable
             
             // Add spaces to buffer and increment cursor
             for (int i = 0; i < spacesToAdd; i++) {
-                buf.add(new ScreenItem(' '));
+                appendCell(' ');
                 cursorX++;
             }
             
             return;
         }
         
+        // Handle color escape
+        // The escape character is replaced by a change of color
+        if (c >= '0' && c <= '9' && lastItem() == ITEM_CHAR
+                && cells[lastCell()] == COLOR_ESCAPE_CHAR) {
+            
+            // Remove escape character
+            removeLastItem(ITEM_CHAR);
+            if (cursorX > 0) {
+                cursorX--;
+            }
+            
+            // Change color of the following characters
+            pushColorEscape();
+            color = Palette.indexed(c - '0');
+            
+            return;
+        }
+        
         // Handle line wrap
         // Ignore typed newlines; they have to be handled later
         if (cursorX > columns - 1 && c != '\n') {
             
             // Add a newline to the buffer
-            buf.add(new ScreenItem('\n'));
+            endLine(LINE_NEWLINE);
             
             // Move cursor all the way to the left and down a line
             cursorX = 0;
@@ -247,45 +585,24 @@ public final class ScreenBuffer implements Debuggable
         // Add character to buffer
         // Don't add newlines; they have to be handled later
         if (c != '\n') {
-            buf.add(new ScreenItem(c));
+            appendCell(c);
         }
         
-        // Calculate the position of the new character on the screen
-        int newCharPosX = 0;
-        int newCharPosY = 0;
-        
-        for (ScreenItem i : buf) {
-            if (i.hasImage()) {
-                newCharPosX += countImageColumns(i.getImage());
-                newCharPosY += countImageLines(i.getImage());
-                continue;
-            }
-            
-            if (i.getCharacter() == '\n') {
-                newCharPosX = 0;
-                newCharPosY++;
-                continue;
-            }
-            
-            if (newCharPosX > columns - 1) {
-                newCharPosX = 0;
-                newCharPosY++;
-            }
-            
-            newCharPosX++;
-        }
+        // The new character always sits at the end of the last line
+        int newCharPosY = lineCount - 1;
         
         // Handle newline
         if (c == '\n') {
             
             // Add a newline to the buffer
-            buf.add(new ScreenItem('\n'));
+            endLine(LINE_NEWLINE);
             
             /* If the cursor is below the new character, add extra newlines to
                realign the cursor */
             if (cursorY > newCharPosY) {
-                for (int i = 0; i < cursorY - newCharPosY; i++) {
-                    buf.add(new ScreenItem('\n'));
+                int extraLines = cursorY - newCharPosY;
+                for (int i = 0; i < extraLines; i++) {
+                    endLine(LINE_NEWLINE);
                 }
             }
             
@@ -310,13 +627,14 @@ public final class ScreenBuffer implements Debuggable
     
     /**
      * Adds an image to the end of the buffer and moves the cursor accordingly.
+     * The image is drawn at its actual size, so it should already have been
+     * scaled with {@link #scaleImage(BufferedImage)}.
      * 
-     * @param image the image to be added to the buffer
+     * @param scaledImage the image to be added to the buffer
      */
-    public void putImage(BufferedImage image)
+    public void putImage(BufferedImage scaledImage)
     {
-        // Scale image
-        BufferedImage scaledImage = scaleImage(image);
+        hasCursorOffset = false;
         
         // Calculate dimensions of scaled image and move cursor
         int width = countImageColumns(scaledImage);
@@ -324,12 +642,26 @@ public final class ScreenBuffer implements Debuggable
         cursorX += width;
         cursorY += height;
         
-        // Add image to buffer
-        buf.add(new ScreenItem(scaledImage));
+        // Add image to buffer; it is drawn from the top of the current line
+        int p = physicalLine(lineCount - 1);
+        lineImage[p] = scaledImage;
+        lineImageColumn[p] = lineLength[p];
+        
+        // Skip the lines covered by the image
+        for (int i = 0; i < height; i++) {
+            endLine(LINE_IMAGE);
+        }
+        
+        /* The image may be drawn across the whole width of its lines, and it
+           can stick out into the line below them */
+        for (int y = lineCount - 1 - height;
+                y <= Math.min(lineCount, capacity - 1); y++) {
+            markDirty(y, 0, columns);
+        }
         
         // Add horizontal padding so image doesn't overlap next print
         for (int i = 0; i < width; i++) {
-            buf.add(new ScreenItem(' '));
+            appendCell(' ');
         }
         
         // Trim lines from the top if image will be drawn off screen (scroll)
@@ -339,10 +671,14 @@ public final class ScreenBuffer implements Debuggable
         }
     }
     
-    /*
-     * Scales an image according to the value of IMAGE_SCALE_FACTOR.
+    /**
+     * Scales an image according to the value of {@link #IMAGE_SCALE_FACTOR}.
+     * The scaled image stores its pixels as packed RGB or ARGB integers.
+     * 
+     * @param image the image to scale
+     * @return the scaled image
      */
-    private BufferedImage scaleImage(BufferedImage image)
+    public static BufferedImage scaleImage(BufferedImage image)
     {
         AffineTransform transform;
         AffineTransformOp transformOp;
@@ -365,94 +701,357 @@ public final class ScreenBuffer implements Debuggable
         
         // Make a new blank image with the scaled bounds
         scaledImage = new BufferedImage(scaledWidth, scaledHeight,
-                image.getType());
+                image.getColorModel().hasAlpha()
+                        ? BufferedImage.TYPE_INT_ARGB
+                        : BufferedImage.TYPE_INT_RGB);
         
         // Draw scaled image data on blank image
         scaledImageGraphics = scaledImage.createGraphics();
         scaledImageGraphics.drawImage(image, transformOp, 0, 0);
+        scaledImageGraphics.dispose();
         
         return scaledImage;
     }
     
     /*
-     * Removes a line from the start of the buffer.
-     * Use this to create a scrolling effect.
+     * Maps a line number (0 being the top line) to its index in the ring.
      */
-    private void trimLine()
+    private int physicalLine(int y)
     {
-        int x;
-        int y;
-        int width;
-        int height;
-        ScreenItem item;
-        BufferedImage image;
-        BufferedImage trimmedImage;
-        ListIterator<ScreenItem> it;
+        if (y < 0 || y > lineCount - 1) {
+            throw new IndexOutOfBoundsException(
+                    "Line: " + y + ", Lines: " + lineCount);
+        }
+        
+        return (head + y) % capacity;
+    }
+    
+    /*
+     * Gets the index of the last used cell on the last line.
+     */
+    private int lastCell()
+    {
+        int p = physicalLine(lineCount - 1);
+        return p * columns + lineLength[p] - 1;
+    }
+    
+    /*
+     * Writes a character to the next free cell, wrapping to a new line if the
+     * last line is full.
+     */
+    private void appendCell(char c)
+    {
+        int p = physicalLine(lineCount - 1);
         
-        x = 0;
+        if (lineLength[p] == columns) {
+            endLine(LINE_WRAP);
+            p = physicalLine(lineCount - 1);
+        }
         
-        /* Iterate through all screen items and remove items until an entire
-           line has been removed */
-        for (it = buf.listIterator(); it.hasNext(); x++) {
-            
-            // Get next screen item
-            item = it.next();
-            
-            // Trim image
-            if (item.hasImage()) {
-                
-                // Get image and calculate dimensions of trimmed image
-                image = item.getImage();
-                y = charHeight;
-                width = image.getWidth();
-                height = image.getHeight() - charHeight;
+        cells[p * columns + lineLength[p]] = c;
+        attributes[p * columns + lineLength[p]] = color;
+        markDirty(lineCount - 1, lineLength[p], lineLength[p] + 1);
+        lineLength[p]++;
+    }
+    
+    /*
+     * Adds a span of cells on a line to the cells that need to be redrawn.
+     */
+    private void markDirty(int y, int start, int end)
+    {
+        if (allDirty || y < 0) {
+            return;
+        }
+        
+        if (dirtyStart[y] == dirtyEnd[y]) {
+            dirtyStart[y] = start;
+            dirtyEnd[y] = end;
+        } else {
+            dirtyStart[y] = Math.min(dirtyStart[y], start);
+            dirtyEnd[y] = Math.max(dirtyEnd[y], end);
+        }
+        
+        dirtyTop = Math.min(dirtyTop, y);
+        dirtyBottom = Math.max(dirtyBottom, y);
+    }
+    
+    /*
+     * Moves the dirty spans up a line so that they follow the lines they
+     * belong to when the top line is removed.
+     */
+    private void scrollDirty()
+    {
+        scrolledLines++;
+        
+        if (dirtyTop > dirtyBottom) {
+            return;
+        }
+        
+        for (int y = Math.max(dirtyTop, 1); y <= dirtyBottom; y++) {
+            dirtyStart[y - 1] = dirtyStart[y];
+            dirtyEnd[y - 1] = dirtyEnd[y];
+        }
+        dirtyStart[dirtyBottom] = 0;
+        dirtyEnd[dirtyBottom] = 0;
+        
+        dirtyTop = Math.max(dirtyTop - 1, 0);
+        dirtyBottom--;
+    }
+    
+    /*
+     * Remembers the position of a color escape at the end of the buffer along
+     * with the color that was in use before it.
+     */
+    private void pushColorEscape()
+    {
+        // Forget the oldest escape if there are too many
+        if (escapeCount == MAX_COLOR_ESCAPES) {
+            System.arraycopy(escapeLine, 1, escapeLine, 0, escapeCount - 1);
+            System.arraycopy(escapeColumn, 1, escapeColumn, 0, escapeCount - 1);
+            System.arraycopy(escapeColor, 1, escapeColor, 0, escapeCount - 1);
+            escapeCount--;
+        }
+        
+        escapeLine[escapeCount] = trimmedLines + lineCount - 1;
+        escapeColumn[escapeCount] = lineLength[physicalLine(lineCount - 1)];
+        escapeColor[escapeCount] = color;
+        escapeCount++;
+    }
+    
+    /*
+     * Undoes the color escape at the end of the buffer, if there is one, by
+     * restoring the previous color and putting the escape character back.
+     * Returns true if an escape was erased.
+     */
+    private boolean eraseColorEscape()
+    {
+        if (escapeCount == 0) {
+            return false;
+        }
+        
+        int top = escapeCount - 1;
+        int p = physicalLine(lineCount - 1);
+        if (escapeLine[top] != trimmedLines + lineCount - 1
+                || escapeColumn[top] != lineLength[p]) {
+            return false;
+        }
+        
+        escapeCount--;
+        color = escapeColor[top];
+        appendCell(COLOR_ESCAPE_CHAR);
+        cursorX++;
+        
+        return true;
+    }
+    
+    /*
+     * Ends the last line and starts a new, empty line below it.
+     */
+    private void endLine(byte ending)
+    {
+        // The ring is full; drop the top line to make room
+        if (lineCount == capacity) {
+            trimLine();
+            cursorY--;
+        }
+        
+        lineEnd[physicalLine(lineCount - 1)] = ending;
+        lineEndColor[physicalLine(lineCount - 1)] = color;
+        lineCount++;
+        
+        // Colors only last until the end of the line
+        if (ending == LINE_NEWLINE) {
+            color = Palette.DEFAULT_COLOR;
+        }
+        
+        clearLine(physicalLine(lineCount - 1));
+    }
+    
+    /*
+     * Removes the last line and reopens the line above it.
+     */
+    private void dropLastLine()
+    {
+        clearLine(physicalLine(lineCount - 1));
+        lineCount--;
+        lineEnd[physicalLine(lineCount - 1)] = LINE_OPEN;
+        color = lineEndColor[physicalLine(lineCount - 1)];
+    }
+    
+    /*
+     * Resets a line so that it can be reused.
+     */
+    private void clearLine(int p)
+    {
+        Arrays.fill(cells, p * columns, (p + 1) * columns, '\0');
+        Arrays.fill(attributes, p * columns, (p + 1) * columns,
+                Palette.DEFAULT_COLOR);
+        lineLength[p] = 0;
+        lineEnd[p] = LINE_OPEN;
+        lineImage[p] = null;
+        lineImageColumn[p] = 0;
+        lineEndColor[p] = Palette.DEFAULT_COLOR;
+    }
+    
+    /*
+     * Determines the type of the last item in the buffer.
+     */
+    private int lastItem()
+    {
+        int y = lineCount - 1;
+        int p = physicalLine(y);
+        
+        // An image is last if nothing has been written after it
+        if (lineImage[p] != null && lineImageColumn[p] == lineLength[p]) {
+            return ITEM_IMAGE;
+        }
+        
+        if (lineLength[p] > 0) {
+            return ITEM_CHAR;
+        }
+        
+        if (y == 0) {
+            return ITEM_NONE;
+        }
+        
+        // The last line is empty, so the item is whatever ended the line above
+        switch (lineEnd[physicalLine(y - 1)]) {
+            case LINE_NEWLINE:
+                return ITEM_NEWLINE;
+            case LINE_IMAGE:
+                return ITEM_IMAGE;
+            default:
+                return ITEM_NONE;
+        }
+    }
+    
+    /*
+     * Removes the last item in the buffer.
+     */
+    private void removeLastItem(int item)
+    {
+        int p = physicalLine(lineCount - 1);
+        
+        switch (item) {
+            case ITEM_CHAR:
+                lineLength[p]--;
+                cells[p * columns + lineLength[p]] = '\0';
+                attributes[p * columns + lineLength[p]] = Palette.DEFAULT_COLOR;
+                markDirty(lineCount - 1, lineLength[p], lineLength[p] + 1);
                 
-                // Remove image completely if there is no more left to trim
-                if (height <= 0) {
-                    it.remove();
-                    continue;
+                /* A line that was started by wrapping is removed once it is
+                   empty so that the line above becomes the last line again */
+                if (lineLength[p] == 0 && lineCount > 1
+                        && lineEnd[physicalLine(lineCount - 2)] == LINE_WRAP) {
+                    dropLastLine();
                 }
-                
-                // Trim image from top; replace current image with trimmed image
-                trimmedImage = image.getSubimage(0, y, width, height);
-                it.set(new ScreenItem(trimmedImage));
                 break;
-            }
-            
-            // Remove character
-            it.remove();
-            
-            /*  End if a newline character is reached or if we've hit the edge
-                of the screen */
-            if (item.getCharacter() == '\n' || x > columns) {
+            case ITEM_NEWLINE:
+                dropLastLine();
                 break;
+            case ITEM_IMAGE:
+                // Remove the lines covered by the image, then the image itself
+                while (lineImage[physicalLine(lineCount - 1)] == null) {
+                    dropLastLine();
+                }
+                lineImage[physicalLine(lineCount - 1)] = null;
+                allDirty = true;
+                break;
+        }
+    }
+    
+    /*
+     * Removes a line from the top of the buffer.
+     * Use this to create a scrolling effect.
+     */
+    private void trimLine()
+    {
+        int p = head;
+        BufferedImage image = lineImage[p];
+        int height;
+        
+        // Keep the line in the scrollback
+        scrollback.addLine(cells, attributes, p * columns, lineLength[p]);
+        
+        clearLine(p);
+        head = (head + 1) % capacity;
+        lineCount--;
+        trimmedLines++;
+        
+        // Every line has moved up
+        scrollDirty();
+        
+        // Always keep a line to write to
+        if (lineCount == 0) {
+            lineCount = 1;
+            clearLine(head);
+        }
+                
+        // Trim image from top; move the rest of it onto the new top line
+        if (image != null) {
+            height = image.getHeight() - charHeight;
+            if (height > 0 && lineImage[head] != null) {
+                // Only one image can start on a line; keep the newer one
+                allDirty = true;
+            } else if (height > 0) {
+                lineImage[head] = image.getSubimage(0, charHeight,
+                        image.getWidth(), height);
+                lineImageColumn[head] = 0;
             }
         }
     }
 
+    /*
+     * Describes a color attribute for the debug output.
+     */
+    private static String describeColor(int attribute)
+    {
+        int value = Palette.getValue(attribute);
+        
+        if (Palette.isIndexed(attribute)) {
+            return value < 10 ? Integer.toString(value) : "[" + value + "]";
+        }
+        
+        return "-";
+    }
+    
     @Override
     public void printDebugInfo(PrintWriter pw)
     {
-        int x = 0;
-        
         pw.println("Screen Buffer");
         pw.println("-------------");
-        pw.println("index       data");
-        pw.printf("%08d    ", 0);
+        pw.println("line        data");
         
-        for (int i = 0; i < buf.size(); i++) {
-            pw.print(buf.get(i).toString());
+        for (int y = 0; y < lineCount; y++) {
+            pw.printf("%08d    ", y);
             
-            // Handle newlines and line wrapping
-            if (buf.get(i).getCharacter() == '\n' || x > columns - 1) {
-                x = 0;
-                pw.printf("%08d    ", i + 1);
-            } else {
-                x++;
+            BufferedImage image = getImage(y);
+            int lineColor = Palette.DEFAULT_COLOR;
+            for (int x = 0; x <= getLineLength(y); x++) {
+                if (image != null && x == lineImageColumn[physicalLine(y)]) {
+                    pw.printf("image: { width = %d, height = %d }",
+                            image.getWidth(), image.getHeight());
+                }
+                if (x < getLineLength(y)) {
+                    // Show color changes as color control characters
+                    if (getColor(x, y) != lineColor) {
+                        lineColor = getColor(x, y);
+                        pw.print(COLOR_ESCAPE_CHAR);
+                        pw.print(describeColor(lineColor));
+                    }
+                    pw.print(getChar(x, y));
+                }
             }
+        
+            if (endsWithNewline(y)) {
+                pw.print("(\\n)");
+            }
+            pw.println();
         }
         
+        pw.printf("cursor: { x = %d, y = %d }\n", cursorX, cursorY);
         pw.println();
-        pw.println();
+        
+        scrollback.printDebugInfo(pw);
     }
 }
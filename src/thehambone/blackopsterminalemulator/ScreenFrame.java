@@ -0,0 +1,345 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A {@code ScreenFrame} is a snapshot of the visible part of a
+ * {@link ScreenBuffer}, along with the changes made to the buffer since the
+ * previous snapshot.
+ * <p>
+ * Frames are how the thread that prints to the screen hands its output to the
+ * event dispatch thread. The printing thread captures a frame after changing
+ * the buffer and publishes it; once published, a frame is never modified
+ * again, so the event dispatch thread can draw it without any locking. Frames
+ * are reused once the event dispatch thread is done with them. A frame also
+ * holds a snapshot of the scrollback, so that scrolled-back lines are drawn
+ * without touching the live {@link ScrollbackBuffer}.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class ScreenFrame
+{
+    private final int rows;
+    
+    private final char[][] cells;
+    private final int[][] attributes;
+    private final int[] lineLength;
+    private final BufferedImage[] lineImage;
+    private int lineCount;
+    
+    private int cursorX;
+    private int cursorY;
+    
+    private ScrollbackBuffer.Snapshot scrollback;
+    
+    private final int[] dirtyStart;
+    private final int[] dirtyEnd;
+    private int dirtyTop;
+    private int dirtyBottom;
+    private int scrolledLines;
+    private boolean allDirty;
+    
+    /**
+     * Creates a new, empty {@code ScreenFrame}.
+     * 
+     * @param columns the number of columns on the screen
+     * @param rows the number of lines to capture, counted from the top of the
+     *             screen
+     */
+    public ScreenFrame(int columns, int rows)
+    {
+        this.rows = rows;
+        
+        cells = new char[rows][columns];
+        attributes = new int[rows][columns];
+        lineLength = new int[rows];
+        lineImage = new BufferedImage[rows];
+        lineCount = 0;
+        
+        cursorX = 0;
+        cursorY = 0;
+        
+        scrollback = ScrollbackBuffer.Snapshot.EMPTY;
+        
+        dirtyStart = new int[rows];
+        dirtyEnd = new int[rows];
+        dirtyTop = rows;
+        dirtyBottom = -1;
+        scrolledLines = 0;
+        allDirty = true;
+    }
+    
+    /**
+     * Returns the number of lines in the frame.
+     * 
+     * @return the frame line count
+     */
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+    
+    /**
+     * Copies the characters on a line and their color attributes into arrays.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @param chars the array to copy the characters into; must be able to hold
+     *              a full line
+     * @param colors the array to copy the color attributes into; must be able
+     *               to hold a full line
+     * @return the number of characters on the line
+     * @throws IndexOutOfBoundsException if the specified line is out of bounds
+     */
+    public int getLine(int y, char[] chars, int[] colors)
+    {
+        checkLine(y);
+        
+        System.arraycopy(cells[y], 0, chars, 0, lineLength[y]);
+        System.arraycopy(attributes[y], 0, colors, 0, lineLength[y]);
+        return lineLength[y];
+    }
+    
+    /**
+     * Returns the image that starts on the specified line.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @return the image drawn from the top of the line, {@code null} if there
+     *         is no image on the line
+     * @throws IndexOutOfBoundsException if the specified line is out of bounds
+     */
+    public BufferedImage getImage(int y)
+    {
+        checkLine(y);
+        
+        return lineImage[y];
+    }
+    
+    /**
+     * Gets the x-coordinate of the cursor in terms of columns.
+     * 
+     * @return the x-coordinate of the cursor
+     */
+    public int getCursorX()
+    {
+        return cursorX;
+    }
+    
+    /**
+     * Gets the y-coordinate of the cursor in terms of lines.
+     * 
+     * @return the y-coordinate of the cursor
+     */
+    public int getCursorY()
+    {
+        return cursorY;
+    }
+    
+    /**
+     * Gets the lines that had scrolled off the top of the screen when the
+     * frame was captured.
+     * 
+     * @return a snapshot of the scrollback
+     */
+    public ScrollbackBuffer.Snapshot getScrollback()
+    {
+        return scrollback;
+    }
+    
+    /**
+     * Checks whether the whole screen needs to be redrawn.
+     * 
+     * @return {@code true} if every cell has changed since the previous frame,
+     *         {@code false} otherwise
+     */
+    public boolean isAllDirty()
+    {
+        return allDirty;
+    }
+    
+    /**
+     * Returns the number of lines that have scrolled off the top of the screen
+     * since the previous frame. The dirty spans are relative to the scrolled
+     * lines.
+     * 
+     * @return the number of scrolled lines
+     */
+    public int getScrolledLines()
+    {
+        return scrolledLines;
+    }
+    
+    /**
+     * Returns the first line that has changed since the previous frame. If no
+     * line has changed, this is greater than the value returned by
+     * {@link #getDirtyBottom()}.
+     * 
+     * @return the top dirty line
+     */
+    public int getDirtyTop()
+    {
+        return dirtyTop;
+    }
+    
+    /**
+     * Returns the last line that has changed since the previous frame. If no
+     * line has changed, this is less than the value returned by
+     * {@link #getDirtyTop()}.
+     * 
+     * @return the bottom dirty line
+     */
+    public int getDirtyBottom()
+    {
+        return dirtyBottom;
+    }
+    
+    /**
+     * Returns the first column of the changed span on a line.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @return the first dirty column, equal to {@link #getDirtyEnd(int)} if
+     *         nothing on the line has changed
+     */
+    public int getDirtyStart(int y)
+    {
+        return dirtyStart[y];
+    }
+    
+    /**
+     * Returns the column after the end of the changed span on a line.
+     * 
+     * @param y the line number, 0 being the top line on the screen
+     * @return the column after the last dirty column, equal to
+     *         {@link #getDirtyStart(int)} if nothing on the line has changed
+     */
+    public int getDirtyEnd(int y)
+    {
+        return dirtyEnd[y];
+    }
+    
+    /**
+     * Copies the visible lines of a screen buffer into this frame, along with
+     * the changes made to the buffer since the last capture. The dirty state
+     * of the buffer is cleared.
+     * 
+     * @param buffer the buffer to capture
+     */
+    public void capture(ScreenBuffer buffer)
+    {
+        // Copy lines
+        lineCount = Math.min(buffer.getLineCount(), rows);
+        for (int y = 0; y < lineCount; y++) {
+            lineLength[y] = buffer.getLine(y, cells[y], attributes[y]);
+            lineImage[y] = buffer.getImage(y);
+        }
+        for (int y = lineCount; y < rows; y++) {
+            lineImage[y] = null;
+        }
+        
+        cursorX = buffer.getCursorX();
+        cursorY = buffer.getCursorY();
+        
+        scrollback = buffer.getScrollback().snapshot();
+        
+        // Copy changes
+        for (int y = 0; y < rows; y++) {
+            dirtyStart[y] = 0;
+            dirtyEnd[y] = 0;
+        }
+        dirtyTop = rows;
+        dirtyBottom = -1;
+        for (int y = buffer.getDirtyTop();
+                y <= Math.min(buffer.getDirtyBottom(), rows - 1); y++) {
+            markDirty(y, buffer.getDirtyStart(y), buffer.getDirtyEnd(y));
+        }
+        scrolledLines = buffer.getScrolledLines();
+        allDirty = buffer.isAllDirty();
+        
+        buffer.clearDirty();
+    }
+    
+    /**
+     * Adds the changes of an older frame that was never drawn to the changes
+     * of this frame, so that this frame can be drawn in its place.
+     * 
+     * @param older the frame that is being replaced
+     */
+    public void merge(ScreenFrame older)
+    {
+        // The older changes have scrolled along with this frame's lines
+        for (int y = older.dirtyTop; y <= older.dirtyBottom; y++) {
+            if (y - scrolledLines >= 0) {
+                markDirty(y - scrolledLines, older.dirtyStart[y],
+                        older.dirtyEnd[y]);
+            }
+        }
+        
+        scrolledLines += older.scrolledLines;
+        allDirty |= older.allDirty;
+    }
+    
+    /**
+     * Marks every cell of this frame as changed.
+     */
+    public void invalidate()
+    {
+        allDirty = true;
+    }
+    
+    /*
+     * Adds a span of cells on a line to the cells that have changed.
+     */
+    private void markDirty(int y, int start, int end)
+    {
+        if (start == end) {
+            return;
+        }
+        
+        if (dirtyStart[y] == dirtyEnd[y]) {
+            dirtyStart[y] = start;
+            dirtyEnd[y] = end;
+        } else {
+            dirtyStart[y] = Math.min(dirtyStart[y], start);
+            dirtyEnd[y] = Math.max(dirtyEnd[y], end);
+        }
+        
+        dirtyTop = Math.min(dirtyTop, y);
+        dirtyBottom = Math.max(dirtyBottom, y);
+    }
+    
+    /*
+     * Throws an exception if a line is not part of the frame.
+     */
+    private void checkLine(int y)
+    {
+        if (y < 0 || y > lineCount - 1) {
+            throw new IndexOutOfBoundsException(
+                    "Line: " + y + ", Lines: " + lineCount);
+        }
+    }
+}
@@ -0,0 +1,675 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import thehambone.blackopsterminalemulator.io.Logger;
+import thehambone.blackopsterminalemulator.util.Debuggable;
+
+/**
+ * A {@code ScrollbackBuffer} holds the lines that have scrolled off the top of
+ * the screen.
+ * <p>
+ * Lines are packed into byte rows, with color attributes stored only where
+ * the color changes, and grouped into blocks of
+ * {@value #BLOCK_LINES} lines. Once a block is full it is sealed and deflated
+ * on a background thread. The oldest blocks are discarded when either the line
+ * limit or the byte limit is exceeded, so the amount of memory used by the
+ * scrollback stays bounded no matter how long a session lasts. Images are not
+ * kept in the scrollback.
+ * <p>
+ * All methods are thread-safe. Readers that must not wait for the writer,
+ * such as the event dispatch thread, read from a {@link Snapshot} instead.
+ * Taking a snapshot doesn't copy any lines: sealed blocks and the lines that
+ * have already been written to the hot block never change, so a snapshot
+ * just remembers where the lines it can see are stored.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class ScrollbackBuffer implements Debuggable
+{
+    /**
+     * The number of lines stored in each block.
+     */
+    public static final int BLOCK_LINES = 256;
+    
+    /**
+     * The default maximum number of lines kept in the scrollback.
+     */
+    public static final int DEFAULT_MAX_LINES = 10000;
+    
+    /**
+     * The default maximum number of bytes used by the scrollback.
+     */
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+    
+    /* Packed characters never start with a byte that has both of the high bits
+       set, so those bytes are used to mark color changes. The marker is
+       followed by as many bytes as the color needs. */
+    private static final int DEFAULT_COLOR_MARKER = 0xC0;
+    private static final int INDEXED_COLOR_MARKER = 0xC1;
+    
+    private static final ExecutorService DEFLATER
+            = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "scrollback-deflater");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                }
+            });
+    
+    private final List<Block> blocks;
+    private PackedOutputStream hotBlock;
+    private int[] hotOffsets;
+    
+    private int maxLines;
+    private int maxBytes;
+    
+    private int skippedLines;
+    private int lineCount;
+    private int byteCount;
+    
+    private Block inflatedBlock;
+    private byte[] inflatedData;
+    
+    private Snapshot snapshot;
+    
+    /**
+     * Creates a new {@code ScrollbackBuffer}.
+     * 
+     * @param maxLines the maximum number of lines to keep
+     * @param maxBytes the maximum number of bytes to use for storing lines
+     */
+    public ScrollbackBuffer(int maxLines, int maxBytes)
+    {
+        blocks = new ArrayList<>();
+        hotBlock = new PackedOutputStream();
+        hotOffsets = new int[BLOCK_LINES + 1];
+        
+        setMaxLines(maxLines);
+        setMaxBytes(maxBytes);
+        
+        skippedLines = 0;
+        lineCount = 0;
+        byteCount = 0;
+        
+        snapshot = null;
+    }
+    
+    /**
+     * Sets the maximum number of lines to keep. The oldest lines are discarded
+     * if the scrollback currently holds more lines than this.
+     * 
+     * @param maxLines the new line limit
+     */
+    public synchronized void setMaxLines(int maxLines)
+    {
+        if (maxLines < 0) {
+            throw new IllegalArgumentException(
+                    "maxLines must be a non-negative integer");
+        }
+        
+        this.maxLines = maxLines;
+        enforceLimits();
+    }
+    
+    /**
+     * Sets the maximum number of bytes to use for storing lines. The oldest
+     * blocks are discarded if the scrollback currently uses more than this.
+     * 
+     * @param maxBytes the new byte limit
+     */
+    public synchronized void setMaxBytes(int maxBytes)
+    {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException(
+                    "maxBytes must be a non-negative integer");
+        }
+        
+        this.maxBytes = maxBytes;
+        enforceLimits();
+    }
+    
+    /**
+     * Returns the number of lines currently in the scrollback.
+     * 
+     * @return the scrollback line count
+     */
+    public synchronized int getLineCount()
+    {
+        return lineCount;
+    }
+    
+    /**
+     * Returns the number of bytes currently used for storing lines.
+     * 
+     * @return the scrollback size in bytes
+     */
+    public synchronized int getByteCount()
+    {
+        return byteCount + hotBlock.size();
+    }
+    
+    /**
+     * Adds a line to the bottom of the scrollback.
+     * 
+     * @param chars the array containing the characters on the line
+     * @param colors the array containing the color attributes of the
+     *               characters on the line
+     * @param offset the index of the first character on the line
+     * @param length the number of characters on the line
+     */
+    public synchronized void addLine(char[] chars, int[] colors, int offset,
+            int length)
+    {
+        if (maxLines == 0) {
+            return;
+        }
+        
+        int hotLines = hotLineCount();
+        
+        // Pack line
+        int color = Palette.DEFAULT_COLOR;
+        writePacked(hotBlock, (char)length);
+        for (int i = 0; i < length; i++) {
+            if (colors[offset + i] != color) {
+                color = colors[offset + i];
+                writeColor(hotBlock, color);
+            }
+            writePacked(hotBlock, chars[offset + i]);
+        }
+        hotOffsets[hotLines + 1] = hotBlock.size();
+        lineCount++;
+        snapshot = null;
+        
+        // Seal the block once it is full
+        if (hotLines + 1 == BLOCK_LINES) {
+            sealHotBlock();
+        }
+        
+        enforceLimits();
+    }
+    
+    /**
+     * Copies a line from the scrollback and its color attributes into arrays.
+     * 
+     * @param index the line number, 0 being the oldest line
+     * @param chars the array to copy the characters into; must be able to hold
+     *              a full line
+     * @param colors the array to copy the color attributes into; must be able
+     *               to hold a full line
+     * @return the number of characters on the line
+     * @throws IndexOutOfBoundsException if the specified line is out of bounds
+     */
+    public synchronized int getLine(int index, char[] chars, int[] colors)
+    {
+        if (index < 0 || index > lineCount - 1) {
+            throw new IndexOutOfBoundsException(
+                    "Line: " + index + ", Lines: " + lineCount);
+        }
+        
+        int absolute = index + skippedLines;
+        int blockIndex = absolute / BLOCK_LINES;
+        int line = absolute % BLOCK_LINES;
+        
+        byte[] data;
+        int[] offsets;
+        if (blockIndex < blocks.size()) {
+            Block block = blocks.get(blockIndex);
+            data = getBlockData(block);
+            offsets = block.offsets;
+        } else {
+            data = hotBlock.getBuffer();
+            offsets = hotOffsets;
+        }
+        
+        return readPacked(data, offsets[line], chars, colors);
+    }
+    
+    /**
+     * Takes a snapshot of the lines currently in the scrollback. The snapshot
+     * isn't affected by lines added or discarded afterwards.
+     * 
+     * @return a snapshot of the scrollback
+     */
+    public synchronized Snapshot snapshot()
+    {
+        if (snapshot == null) {
+            snapshot = new Snapshot(blocks.toArray(new Block[blocks.size()]),
+                    hotBlock.getBuffer(),
+                    Arrays.copyOf(hotOffsets, hotLineCount() + 1),
+                    skippedLines, lineCount);
+        }
+        
+        return snapshot;
+    }
+    
+    /**
+     * Removes all lines from the scrollback.
+     */
+    public synchronized void clear()
+    {
+        blocks.clear();
+        hotBlock = new PackedOutputStream();
+        hotOffsets = new int[BLOCK_LINES + 1];
+        skippedLines = 0;
+        lineCount = 0;
+        byteCount = 0;
+        inflatedBlock = null;
+        inflatedData = null;
+        snapshot = null;
+    }
+    
+    /*
+     * Returns the number of lines in the block that is currently being filled.
+     */
+    private int hotLineCount()
+    {
+        return lineCount + skippedLines - blocks.size() * BLOCK_LINES;
+    }
+    
+    /*
+     * Moves the lines in the hot block into a new sealed block and schedules
+     * the new block to be compressed.
+     */
+    private void sealHotBlock()
+    {
+        final Block block = new Block(hotBlock.toByteArray(),
+                Arrays.copyOf(hotOffsets, hotOffsets.length));
+        blocks.add(block);
+        byteCount += block.raw.length;
+        
+        // Snapshots may still be reading the old hot block
+        hotBlock = new PackedOutputStream();
+        hotOffsets = new int[BLOCK_LINES + 1];
+        
+        DEFLATER.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                byte[] compressed = deflate(block.raw);
+                synchronized (ScrollbackBuffer.this) {
+                    // The block might have been discarded in the meantime
+                    if (!blocks.contains(block)) {
+                        return;
+                    }
+                    byteCount += compressed.length - block.raw.length;
+                    block.compressed = compressed;
+                    block.raw = null;
+                }
+            }
+        });
+    }
+    
+    /*
+     * Discards the oldest lines until both limits are satisfied.
+     */
+    private void enforceLimits()
+    {
+        if (lineCount > maxLines
+                || (byteCount + hotBlock.size() > maxBytes
+                        && !blocks.isEmpty())) {
+            snapshot = null;
+        }
+        
+        // Discard single lines until the line limit is met
+        while (lineCount > maxLines) {
+            skippedLines++;
+            lineCount--;
+            
+            // Discard the oldest block once all of its lines are skipped
+            if (skippedLines == BLOCK_LINES) {
+                discardOldestBlock();
+            }
+        }
+        
+        // Discard whole blocks until the byte limit is met
+        while (byteCount + hotBlock.size() > maxBytes && !blocks.isEmpty()) {
+            lineCount -= BLOCK_LINES - skippedLines;
+            discardOldestBlock();
+        }
+    }
+    
+    /*
+     * Removes the oldest block.
+     */
+    private void discardOldestBlock()
+    {
+        Block block = blocks.remove(0);
+        byteCount -= block.size();
+        skippedLines = 0;
+        
+        if (block == inflatedBlock) {
+            inflatedBlock = null;
+            inflatedData = null;
+        }
+    }
+    
+    /*
+     * Gets the uncompressed data of a sealed block.
+     */
+    private byte[] getBlockData(Block block)
+    {
+        byte[] raw = block.raw;
+        if (raw != null) {
+            return raw;
+        }
+        
+        // Keep the last inflated block around; lines are usually read in runs
+        if (block != inflatedBlock) {
+            inflatedData = inflate(block.compressed,
+                    block.offsets[BLOCK_LINES]);
+            inflatedBlock = block;
+        }
+        
+        return inflatedData;
+    }
+    
+    /*
+     * Compresses a byte array.
+     */
+    private static byte[] deflate(byte[] data)
+    {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        byte[] buf = new byte[4096];
+        
+        deflater.setInput(data);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buf);
+            out.write(buf, 0, n);
+        }
+        deflater.end();
+        
+        return out.toByteArray();
+    }
+    
+    /*
+     * Decompresses a byte array.
+     */
+    private static byte[] inflate(byte[] data, int length)
+    {
+        Inflater inflater = new Inflater();
+        byte[] result = new byte[length];
+        
+        try {
+            inflater.setInput(data);
+            inflater.inflate(result);
+        } catch (DataFormatException ex) {
+            Logger.stackTrace(ex);
+        } finally {
+            inflater.end();
+        }
+        
+        return result;
+    }
+    
+    /*
+     * Writes a character using 1 byte for 7-bit ASCII and 3 bytes otherwise.
+     */
+    private static void writePacked(ByteArrayOutputStream out, char c)
+    {
+        if (c < 0x80) {
+            out.write(c);
+        } else {
+            out.write(0x80 | (c >>> 14));
+            out.write((c >>> 7) & 0x7F);
+            out.write(c & 0x7F);
+        }
+    }
+    
+    /*
+     * Writes a color change marker followed by the color value.
+     */
+    private static void writeColor(ByteArrayOutputStream out, int color)
+    {
+        int value = Palette.getValue(color);
+        
+        if (Palette.isIndexed(color)) {
+            out.write(INDEXED_COLOR_MARKER);
+            out.write(value);
+        } else {
+            out.write(DEFAULT_COLOR_MARKER);
+        }
+    }
+    
+    /*
+     * Reads a packed line starting at the specified offset.
+     */
+    private static int readPacked(byte[] data, int offset, char[] chars,
+            int[] colors)
+    {
+        int[] pos = new int[] { offset };
+        int length = readPackedChar(data, pos);
+        int color = Palette.DEFAULT_COLOR;
+        
+        for (int i = 0; i < length; i++) {
+            // Color changes are stored in front of the character
+            switch (data[pos[0]] & 0xFF) {
+                case DEFAULT_COLOR_MARKER:
+                    color = Palette.DEFAULT_COLOR;
+                    pos[0]++;
+                    break;
+                case INDEXED_COLOR_MARKER:
+                    color = Palette.indexed(data[pos[0] + 1] & 0xFF);
+                    pos[0] += 2;
+                    break;
+            }
+            
+            chars[i] = readPackedChar(data, pos);
+            colors[i] = color;
+        }
+        
+        return length;
+    }
+    
+    /*
+     * Reads a single packed character and advances the position.
+     */
+    private static char readPackedChar(byte[] data, int[] pos)
+    {
+        int b = data[pos[0]++] & 0xFF;
+        
+        if (b < 0x80) {
+            return (char)b;
+        }
+        
+        int c = (b & 0x7F) << 14;
+        c |= (data[pos[0]++] & 0x7F) << 7;
+        c |= data[pos[0]++] & 0x7F;
+        
+        return (char)c;
+    }
+    
+    @Override
+    public synchronized void printDebugInfo(PrintWriter pw)
+    {
+        int compressedBlocks = 0;
+        for (Block b : blocks) {
+            if (b.compressed != null) {
+                compressedBlocks++;
+            }
+        }
+        
+        pw.println("Scrollback Buffer");
+        pw.println("-----------------");
+        pw.printf("lines: %d (max: %d)\n", lineCount, maxLines);
+        pw.printf("bytes: %d (max: %d)\n", getByteCount(), maxBytes);
+        pw.printf("blocks: %d (compressed: %d)\n",
+                blocks.size(), compressedBlocks);
+        pw.println();
+    }
+    
+    /**
+     * A {@code Snapshot} is a read-only view of the lines that were in a
+     * {@link ScrollbackBuffer} when the snapshot was taken.
+     * <p>
+     * Reading a snapshot never waits for the scrollback, but a snapshot keeps
+     * the last block it inflated, so it should only be read by one thread.
+     */
+    public static final class Snapshot
+    {
+        /**
+         * A snapshot with no lines.
+         */
+        public static final Snapshot EMPTY
+                = new Snapshot(new Block[0], new byte[0], new int[1], 0, 0);
+        
+        private final Block[] blocks;
+        private final byte[] hotData;
+        private final int[] hotOffsets;
+        private final int skippedLines;
+        private final int lineCount;
+        
+        private Block inflatedBlock;
+        private byte[] inflatedData;
+        
+        private Snapshot(Block[] blocks, byte[] hotData, int[] hotOffsets,
+                int skippedLines, int lineCount)
+        {
+            this.blocks = blocks;
+            this.hotData = hotData;
+            this.hotOffsets = hotOffsets;
+            this.skippedLines = skippedLines;
+            this.lineCount = lineCount;
+        }
+        
+        /**
+         * Returns the number of lines in the snapshot.
+         * 
+         * @return the snapshot line count
+         */
+        public int getLineCount()
+        {
+            return lineCount;
+        }
+        
+        /**
+         * Copies a line from the snapshot and its color attributes into
+         * arrays.
+         * 
+         * @param index the line number, 0 being the oldest line
+         * @param chars the array to copy the characters into; must be able to
+         *              hold a full line
+         * @param colors the array to copy the color attributes into; must be
+         *               able to hold a full line
+         * @return the number of characters on the line
+         * @throws IndexOutOfBoundsException if the specified line is out of
+         *                                   bounds
+         */
+        public int getLine(int index, char[] chars, int[] colors)
+        {
+            if (index < 0 || index > lineCount - 1) {
+                throw new IndexOutOfBoundsException(
+                        "Line: " + index + ", Lines: " + lineCount);
+            }
+            
+            int absolute = index + skippedLines;
+            int blockIndex = absolute / BLOCK_LINES;
+            int line = absolute % BLOCK_LINES;
+            
+            if (blockIndex < blocks.length) {
+                Block block = blocks[blockIndex];
+                return readPacked(getBlockData(block), block.offsets[line],
+                        chars, colors);
+            }
+            
+            return readPacked(hotData, hotOffsets[line], chars, colors);
+        }
+        
+        /*
+         * Gets the uncompressed data of a sealed block.
+         */
+        private byte[] getBlockData(Block block)
+        {
+            byte[] raw = block.raw;
+            if (raw != null) {
+                return raw;
+            }
+            
+            if (block != inflatedBlock) {
+                inflatedData = inflate(block.compressed,
+                        block.offsets[BLOCK_LINES]);
+                inflatedBlock = block;
+            }
+            
+            return inflatedData;
+        }
+    }
+    
+    /*
+     * A sealed block of packed lines. The deflater thread replaces the raw
+     * data with the compressed data, setting the compressed data first, so a
+     * reader that finds no raw data always finds the compressed data.
+     */
+    private static final class Block
+    {
+        private final int[] offsets;
+        private volatile byte[] raw;
+        private volatile byte[] compressed;
+        
+        private Block(byte[] raw, int[] offsets)
+        {
+            this.raw = raw;
+            this.offsets = offsets;
+            compressed = null;
+        }
+        
+        private int size()
+        {
+            byte[] data = raw;
+            return data != null ? data.length : compressed.length;
+        }
+    }
+    
+    /*
+     * A ByteArrayOutputStream whose buffer can be read without copying it.
+     */
+    private static final class PackedOutputStream extends ByteArrayOutputStream
+    {
+        private byte[] getBuffer()
+        {
+            return buf;
+        }
+    }
+}
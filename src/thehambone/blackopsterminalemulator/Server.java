@@ -149,15 +149,15 @@ public class Server
     {
         // Show login message
         if (!loginMessage.isEmpty()) {
-            Terminal.println(loginMessage);
+            Terminal.writeln(loginMessage);
         }
         
         // Prompt for username
-        Terminal.print("USER:");
+        Terminal.write("USER:");
         String username = Terminal.readLine();
         
         // Prompt for password
-        Terminal.print("PASSWORD:");
+        Terminal.write("PASSWORD:");
         String password = Terminal.readLine('*');
         
         // Validate username and password
@@ -166,7 +166,7 @@ public class Server
         UserAccount user = getUser(username);
         if (user == null || !user.getPassword().equalsIgnoreCase(password)
                 || user.getHomeDirectory().isUnlisted()) {
-            Terminal.println("Invalid Password");
+            Terminal.writeln("Invalid Password");
         } else {
             shell = new LoginShell(this, user);
         }
@@ -26,18 +26,26 @@ package thehambone.blackopsterminalemulator;
 
 import java.awt.Font;
 import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Stack;
-import java.util.concurrent.TimeUnit;
 import javax.swing.AbstractAction;
 import javax.swing.ActionMap;
 import javax.swing.InputMap;
@@ -53,8 +61,8 @@ import thehambone.blackopsterminalemulator.filesystem.FileSystem;
 import thehambone.blackopsterminalemulator.filesystem.FileSystemObject;
 import thehambone.blackopsterminalemulator.filesystem.PrintableFile;
 import thehambone.blackopsterminalemulator.io.ResourceLoader;
+import thehambone.blackopsterminalemulator.util.CharRingBuffer;
 import thehambone.blackopsterminalemulator.util.Debuggable;
-import thehambone.blackopsterminalemulator.util.FixedLengthQueue;
 
 /** 
  * Created on Nov 18, 2015.
@@ -65,12 +73,24 @@ public final class Terminal implements Debuggable
 {
     public static final int COLUMNS = 80;
     public static final int LINES = 27;
+    public static final int PAGE_LINES = 22;
     
-    private static final int INPUT_BUFFER_LENGTH = 81;
-    private static char[] INPUT_BUFFER = new char[INPUT_BUFFER_LENGTH];
+    private static final int MAX_INPUT_LENGTH = 4096;
+    // Room for a pasted line of the maximum length and the keys typed ahead
+    private static final int TYPEAHEAD_LENGTH = MAX_INPUT_LENGTH * 2;
+    private static final int STREAM_CHUNK_LENGTH = 4096;
+    private static final long DEBUG_INFO_TIMEOUT_MILLIS = 2000;
     
     private static final char INPUT_HISTORY_CYCLE_UP = '\uFFFE';
     private static final char INPUT_HISTORY_CYCLE_DOWN = '\uFFFF';
+    static final char INPUT_CURSOR_LEFT = '\uFFF0';
+    private static final char INPUT_CURSOR_RIGHT = '\uFFF1';
+    private static final char INPUT_CURSOR_HOME = '\uFFF2';
+    private static final char INPUT_CURSOR_END = '\uFFF3';
+    private static final char INPUT_TOGGLE_OVERWRITE = '\uFFF4';
+    private static final char INPUT_DELETE_WORD = '\u0017';     // Ctrl+W
+    static final char INPUT_SEARCH_HISTORY = '\u0012';     // Ctrl+R
+    static final char INPUT_CANCEL = '\u0007';             // Ctrl+G
     
     private static final Font DEFAULT_FONT_WIN
             = new Font("Courier New", Font.PLAIN, 13);
@@ -79,6 +99,9 @@ public final class Terminal implements Debuggable
     
     private static final int MAX_LOGIN_SHELLS = 15;
     
+    private static final String MORE_PROMPT = "--MORE--";
+    private static final String MORE_PROMPT_ERASE = "\b\b\b\b\b\b\b\b";
+    
     private static final Terminal TERMINAL_INSTANCE = new Terminal();
     
     /**
@@ -143,6 +166,27 @@ public final class Terminal implements Debuggable
         return server;
     }
     
+    /**
+     * Gets the channel through which output reaches the screen. Any thread may
+     * print to the terminal by adding output to the channel.
+     * 
+     * @return the terminal output channel
+     */
+    public static OutputChannel getOutputChannel()
+    {
+        return TERMINAL_INSTANCE.output;
+    }
+    
+    /**
+     * Gets the history of lines typed at the terminal.
+     * 
+     * @return the command history
+     */
+    public static CommandHistory getCommandHistory()
+    {
+        return TERMINAL_INSTANCE.commandHistory;
+    }
+    
     /**
      * Gets the screen associated with the current Terminal instance.
      * 
@@ -153,6 +197,16 @@ public final class Terminal implements Debuggable
         return TERMINAL_INSTANCE.screen;
     }
     
+    /**
+     * Gets the pacer that limits how fast strings are printed to the screen.
+     * 
+     * @return the terminal output pacer
+     */
+    public static OutputPacer getOutputPacer()
+    {
+        return TERMINAL_INSTANCE.outputPacer;
+    }
+    
     /**
      * Checks whether the maximum number of active login shells has been
      * reached.
@@ -233,7 +287,7 @@ public final class Terminal implements Debuggable
      */
     public static void print(char c)
     {
-        TERMINAL_INSTANCE.screen.print(c);
+        TERMINAL_INSTANCE.output.write(c);
     }
     
     /**
@@ -243,56 +297,157 @@ public final class Terminal implements Debuggable
      * output will be stopped until a key is pressed and "--MORE--" will be
      * printed on screen. This creates a screen paging effect and its purpose is
      * to allow the user to read the output one screenful at a time.
+     * <p>
+     * The string is printed at the speed set by the terminal's
+     * {@link OutputPacer}. Pressing the {@code <END>} key while the string is
+     * being printed skips ahead, printing the rest of the string at once; the
+     * output still stops at each "--MORE--" prompt.
      * 
      * @param s the string to be printed
      */
     public static void print(String s)
     {
-        char c;
-        int lineIndex = 0;
-        int linesPrinted = 0;
+        print(new PagedText(s, COLUMNS, PAGE_LINES));
+    }
+    
+    /**
+     * Appends text that has already been laid out to the screen. The text is
+     * paced and paged in the same way as {@link #print(String)}.
+     * 
+     * @param text the text to be printed
+     */
+    public static void print(PagedText text)
+    {
+        String s = text.getText();
+        int pageCount = text.getPageCount();
+        int pageEnd;
+        int i = 0;
         
-        // Print string character by character
-        for (int i = 0; i < s.length(); i++) {
-            // Get next char and print
-            c = s.charAt(i);
-            print(c);
-            
-            // Increment number of lines printed
-            lineIndex++;
-            if (lineIndex > (COLUMNS - 1)
-                    || c == '\n') {
-                linesPrinted++;
-                lineIndex = 0;
-            }
+        // Only skip output that is printed after the key is pressed
+        TERMINAL_INSTANCE.isSkipRequested = false;
+        
+        // Print a page at a time
+        for (int page = 0; page < pageCount; page++) {
+            pageEnd = text.getPageEnd(page);
+            printPaced(s, i, pageEnd);
+            i = pageEnd;
             
             // Show "--MORE--" pager prompt
-            if (linesPrinted == 22) {
-                // Print "--MORE--" prompt
-                String morePrompt = "--MORE--";
-                for (int j = 0; j < morePrompt.length(); j++) {
-                    print(morePrompt.charAt(j));
-                }
+            write(MORE_PROMPT);
+                
+            // Wait for keypress
+            getChar(false);
                 
-                // Wait for keypress
-                getChar(false);
+            // Backspace "--MORE--" prompt
+            write(MORE_PROMPT_ERASE);
+        }
                 
-                // Backspace "--MORE--" prompt
-                for (int j = 0; j < morePrompt.length(); j++) {
-                    print('\b');
+        // Print whatever is left after the last full page
+        printPaced(s, i, s.length());
+    }
+    
+    /**
+     * Appends text to the screen as it is read from a stream. The text is
+     * paced and paged in the same way as {@link #print(String)}.
+     * <p>
+     * The text is read and laid out a piece at a time, so output starts right
+     * away and the memory used does not depend on the length of the text.
+     * Nothing more is read while the "--MORE--" prompt waits for a key. Lines
+     * may end with {@code CR}, {@code LF} or {@code CR LF}; the text always
+     * ends with a newline.
+     * 
+     * @param in the stream to read the text from
+     * @throws IOException if the stream cannot be read
+     */
+    public static void print(Reader in) throws IOException
+    {
+        LineWrapper wrapper = new LineWrapper(COLUMNS);
+        StringBuilder out = new StringBuilder(STREAM_CHUNK_LENGTH * 2);
+        char[] chunk = new char[STREAM_CHUNK_LENGTH];
+        char last = '\n';
+        int linesPrinted = 0;
+        int n;
+        char c;
+        
+        // Only skip output that is printed after the key is pressed
+        TERMINAL_INSTANCE.isSkipRequested = false;
+        
+        while ((n = in.read(chunk)) != -1) {
+            for (int i = 0; i < n; i++) {
+                c = chunk[i];
+                
+                // Turn CR LF and CR into LF
+                if (c == '\n' && last == '\r') {
+                    last = c;
+                    continue;
+                }
+                last = c;
+                if (c == '\r') {
+                    c = '\n';
                 }
                 
-                // Reset lines printed counter
-                linesPrinted = 0;
+                linesPrinted = layOutPaged(c, wrapper, out, linesPrinted);
             }
             
-            // Sleep 1ms to simulate output on a terminal with a low baud rate
-            try {
-                TimeUnit.MILLISECONDS.sleep(1);
-            } catch (InterruptedException ex) {
-                throw new RuntimeException(ex);
-            }
+            // Print what has been laid out before reading any further
+            printPaced(out, 0, out.length());
+            out.setLength(0);
+        }
+        
+        // End the last line
+        if (last != '\n' && last != '\r') {
+            layOutPaged('\n', wrapper, out, linesPrinted);
         }
+        printPaced(out, 0, out.length());
+    }
+    
+    /**
+     * Appends a string of characters to the screen all at once.
+     * <p>
+     * Unlike {@link #print(String)}, the string is neither paced nor paged;
+     * it is put on the screen in a single update. This is meant for command
+     * output, prompts and messages rather than documents.
+     * 
+     * @param s the characters to be written
+     */
+    public static void write(CharSequence s)
+    {
+        TERMINAL_INSTANCE.output.write(s, 0, s.length());
+    }
+    
+    /**
+     * Appends a range of characters to the screen all at once.
+     * <p>
+     * Unlike {@link #print(String)}, the characters are neither paced nor
+     * paged; they are put on the screen in a single update.
+     * 
+     * @param chars the array containing the characters to be written
+     * @param offset the index of the first character to write
+     * @param length the number of characters to write
+     */
+    public static void write(char[] chars, int offset, int length)
+    {
+        TERMINAL_INSTANCE.output.write(chars, offset, length);
+    }
+    
+    /**
+     * Appends a newline to the screen all at once.
+     */
+    public static void writeln()
+    {
+        print('\n');
+    }
+    
+    /**
+     * Appends a string of characters to the screen followed by a newline, all
+     * at once.
+     * 
+     * @param s the characters to be written
+     */
+    public static void writeln(CharSequence s)
+    {
+        TERMINAL_INSTANCE.output.submit(
+                new OutputChannel.Batch().write(s, 0, s.length()).write('\n'));
     }
     
     /**
@@ -320,8 +475,26 @@ public final class Terminal implements Debuggable
      */
     public static void println(BufferedImage img)
     {
-        TERMINAL_INSTANCE.screen.printImage(img);
-        println();
+        println(img, false);
+    }
+    
+    /**
+     * Appends an image to the screen followed by a newline. Images that have
+     * not been scaled for the screen are scaled by the calling thread.
+     * 
+     * @param img the image to be printed
+     * @param isScaled a boolean indicating whether the image has already been
+     *                 scaled for the screen
+     * @see ScreenBuffer#scaleImage(BufferedImage)
+     */
+    public static void println(BufferedImage img, boolean isScaled)
+    {
+        if (!isScaled) {
+            img = ScreenBuffer.scaleImage(img);
+        }
+        
+        TERMINAL_INSTANCE.output.submit(
+                new OutputChannel.Batch().writeImage(img).write('\n'));
     }
     
     /**
@@ -340,7 +513,9 @@ public final class Terminal implements Debuggable
     /**
      * Gets a character typed from the keyboard.
      * <p>
-     * This method blocks until a character is typed.
+     * Characters typed while the terminal is busy are kept in a typeahead
+     * buffer and returned in order. This method blocks until a character is
+     * typed if the typeahead buffer is empty.
      * 
      * @param printChar a boolean indicating whether the typed character should
      *                  be displayed on screen
@@ -348,24 +523,21 @@ public final class Terminal implements Debuggable
      */
     public static char getChar(boolean printChar)
     {
-        // Reset typed char
-        TERMINAL_INSTANCE.charTyped = 0;
+        char c;
         
         // Wait until a character is typed
-        synchronized (TERMINAL_INSTANCE.inputLock) {
-            try {
-                TERMINAL_INSTANCE.inputLock.wait();
-            } catch (InterruptedException ex) {
-                throw new RuntimeException(ex);
-            }
+        try {
+            c = TERMINAL_INSTANCE.typeahead.take();
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
         }
         
         // Print the character
-        if (printChar && TERMINAL_INSTANCE.charTyped != 0) {
-            print(TERMINAL_INSTANCE.charTyped);
+        if (printChar) {
+            print(c);
         }
         
-        return TERMINAL_INSTANCE.charTyped;
+        return c;
     }
     
     /**
@@ -384,7 +556,13 @@ public final class Terminal implements Debuggable
     /**
      * Reads a string of characters typed from the keyboard.
      * <p>
-     * This method blocks until the {@code <ENTER>} key is pressed.
+     * This method blocks until the {@code <ENTER>} key is pressed. While the
+     * line is being typed, it can be edited: the left and right arrow keys,
+     * {@code <HOME>} and {@code <END>} move the cursor, {@code <INSERT>}
+     * switches between inserting and overwriting characters and
+     * {@code <CTRL>+<W>} erases the word before the cursor. Changes are drawn
+     * once the typeahead buffer is used up, so pasted text and keys typed
+     * ahead are drawn together in one update.
      * 
      * @param charToPrint the character to print to the screen in place of the
      *                    typed characters; use 0 ({@code NUL}) to indicate that
@@ -394,45 +572,79 @@ public final class Terminal implements Debuggable
     public static String readLine(char charToPrint)
     {
         char c;
-        int bufPointer;
-        boolean printDifferentChar;
         boolean isReadingInput;
         int historyIndex;
         String input;
-        FixedLengthQueue<String> inputHistory;
+        CommandHistory history;
+        LineEditor editor;
+        HistorySearch search;
         
-        INPUT_BUFFER = new char[INPUT_BUFFER_LENGTH];
-        bufPointer = 0;
-        printDifferentChar = charToPrint != 0;
         isReadingInput = true;
         historyIndex = 0;
-        inputHistory = TERMINAL_INSTANCE.inputHistory;
+        history = TERMINAL_INSTANCE.commandHistory;
+        search = null;
+        editor = TERMINAL_INSTANCE.lineEditor;
+        editor.reset(charToPrint);
+        
+        TERMINAL_INSTANCE.isReadingLine = true;
         
         // Loop until <enter> is pressed
         do {
+            // Draw the changes once the typeahead is used up
+            if (TERMINAL_INSTANCE.typeahead.isEmpty()) {
+                redrawInput(editor);
+            }
+            
             // Get character
             c = getChar(false);
             
-            // Determine the character to print
-            if (!printDifferentChar) {
-                charToPrint = c;
+            // Let the history search handle the keys it uses
+            if (search != null) {
+                if (search.handleKey(c)) {
+                    continue;
+                }
+                search = null;
             }
             
             // Handle control characters
             switch (c) {
                 case '\n':
                     isReadingInput = false;     // End the loop
-                    println();
+                    redrawInput(editor);
+                    writeln();
                     break;
                 case '\b':  // Backspace
-                    if (bufPointer > 0) {
-                        INPUT_BUFFER[--bufPointer] = 0;
-                        print('\b');
+                    editor.deleteBackward();
+                    break;
+                case INPUT_DELETE_WORD:
+                    editor.deleteWordBackward();
+                    break;
+                case INPUT_CURSOR_LEFT:
+                    editor.moveLeft();
+                    break;
+                case INPUT_CURSOR_RIGHT:
+                    editor.moveRight();
+                    break;
+                case INPUT_CURSOR_HOME:
+                    editor.moveHome();
+                    break;
+                case INPUT_CURSOR_END:
+                    editor.moveEnd();
+                    break;
+                case INPUT_TOGGLE_OVERWRITE:
+                    editor.toggleOverwriteMode();
+                    break;
+                case INPUT_SEARCH_HISTORY:
+                    // Don't reveal the history when typing a password
+                    if (charToPrint == 0) {
+                        search = new HistorySearch(history, editor);
                     }
                     break;
+                case INPUT_CANCEL:
+                    break;
                 case INPUT_HISTORY_CYCLE_UP:
                     // Ignore if historyIndex is out of range
-                    if (historyIndex + 1 > inputHistory.getItemCount()) {
+                    if (historyIndex + 1 > history.size()) {
                         continue;
                     }
                     
@@ -444,24 +656,8 @@ public final class Terminal implements Debuggable
                         continue;
                     }
                     
-                    // Erase the current input
-                    for (int i = 0; i < INPUT_BUFFER_LENGTH; i++) {
-                        if (INPUT_BUFFER[i] == 0) {
-                            break;
-                        }
-                        print('\b');
-                    }
-                    
-                    // Reset the input buffer
-                    bufPointer = 0;
-                    INPUT_BUFFER = new char[INPUT_BUFFER_LENGTH];
-                    
-                    // Add the retrieved string to input buffer and print
-                    for (int i = 0; i < input.length(); i++) {
-                        INPUT_BUFFER[i] = input.charAt(i);
-                        bufPointer++;
-                    }
-                    print(input);
+                    // Replace the current input
+                    editor.setText(input);
                     break;
                 case INPUT_HISTORY_CYCLE_DOWN:
                     // Ignore if historyIndex is out of range
@@ -482,7 +678,7 @@ public final class Terminal implements Debuggable
                     */
                     boolean wrapAround = false;
                     if (historyIndex == 0) {
-                        historyIndex = inputHistory.getItemCount();
+                        historyIndex = history.size();
                         wrapAround = true;
                     }
                     
@@ -492,24 +688,8 @@ public final class Terminal implements Debuggable
                         continue;
                     }
                     
-                    // Erase the current input
-                    for (int i = 0; i < INPUT_BUFFER_LENGTH; i++) {
-                        if (INPUT_BUFFER[i] == 0) {
-                            break;
-                        }
-                        print('\b');
-                    }
-                    
-                    // Reset the input buffer
-                    bufPointer = 0;
-                    INPUT_BUFFER = new char[INPUT_BUFFER_LENGTH];
-                    
-                    // Add the retrieved string to input buffer and print
-                    for (int i = 0; i < input.length(); i++) {
-                        INPUT_BUFFER[i] = input.charAt(i);
-                        bufPointer++;
-                    }
-                    print(input);
+                    // Replace the current input
+                    editor.setText(input);
                     
                     // "Wrap" to the beginning of the queue
                     if (wrapAround) {
@@ -517,24 +697,18 @@ public final class Terminal implements Debuggable
                     }
                     break;
                 default:
-                    // Add character to buffer and print character
-                    if (bufPointer < INPUT_BUFFER_LENGTH) {
-                        INPUT_BUFFER[bufPointer++] = c;
-                        print(charToPrint);
-                    }
+                    // Type the character; it is dropped if the line is full
+                    editor.insert(c);
             }
         } while (isReadingInput);
         
+        TERMINAL_INSTANCE.isReadingLine = false;
         
-        // Create string from input buffer
-        // Trim to remove extra null characters
-        input = new String(INPUT_BUFFER).trim();
+        // Trim to remove surrounding spaces
+        input = editor.toString().trim();
         
-        // Add input string to the input history queue
-        if (inputHistory.isFull()) {
-            inputHistory.remove();
-        }
-        inputHistory.insert(input);
+        // Add input string to the history; masked input is never saved
+        history.add(input, charToPrint == 0);
         
         return input;
     }
@@ -549,47 +723,125 @@ public final class Terminal implements Debuggable
         TERMINAL_INSTANCE.printDebugInfo(pw);
     }
     
+    /*
+     * Lays out a character of streamed text. When a page's worth of lines has
+     * been laid out, the page is printed and the pager prompt is shown. The
+     * number of lines laid out on the current page is returned.
+     */
+    private static int layOutPaged(char c, LineWrapper wrapper,
+            StringBuilder out, int linesPrinted)
+    {
+        int start = out.length();
+        
+        wrapper.append(c, out);
+        for (int i = start; i < out.length(); i++) {
+            if (out.charAt(i) != '\n' || ++linesPrinted < PAGE_LINES) {
+                continue;
+            }
+            
+            // Print the page, then wait for a key before going on
+            printPaced(out, 0, i + 1);
+            out.delete(0, i + 1);
+            i = -1;
+            linesPrinted = 0;
+            
+            write(MORE_PROMPT);
+            getChar(false);
+            write(MORE_PROMPT_ERASE);
+        }
+        
+        return linesPrinted;
+    }
+    
+    /*
+     * Prints a range of characters at the speed set by the output pacer, or
+     * all at once if the user has asked to skip ahead.
+     */
+    private static void printPaced(CharSequence s, int start, int end)
+    {
+        OutputChannel output = TERMINAL_INSTANCE.output;
+        OutputPacer pacer = TERMINAL_INSTANCE.outputPacer;
+        int batchEnd;
+        int i = start;
+        
+        while (i < end) {
+            /* Wait for the next batch of characters to be released to
+               simulate output on a terminal with a low baud rate */
+            if (TERMINAL_INSTANCE.isSkipRequested) {
+                batchEnd = end;
+            } else {
+                batchEnd = i + pacer.acquire(end - i);
+            }
+            
+            output.write(s, i, batchEnd);
+            i = batchEnd;
+        }
+    }
+    
+    /*
+     * Draws the changes made to the line being edited in one update and moves
+     * the cursor to its place on the line.
+     */
+    private static void redrawInput(LineEditor editor)
+    {
+        StringBuilder out = TERMINAL_INSTANCE.inputRedrawBuffer;
+        int cursorOffset;
+        
+        if (!editor.isDirty()) {
+            return;
+        }
+        
+        out.setLength(0);
+        cursorOffset = editor.render(out);
+        
+        // Move the cursor in the same update so that it doesn't flicker
+        TERMINAL_INSTANCE.output.submit(new OutputChannel.Batch()
+                .write(out, 0, out.length())
+                .setCursorOffset(cursorOffset));
+    }
+    
     /*
      * Returns the string at the specified index in the input history queue.
      * If the index is out of range, null is returned.
      */
     private static String cycleInputHistory(int index)
     {
-        FixedLengthQueue<String> inputHistory = TERMINAL_INSTANCE.inputHistory;
-        Iterator<String> it = inputHistory.iterator();
-        String previousInput = null;
-        int i = 0;
+        CommandHistory history = TERMINAL_INSTANCE.commandHistory;
         
-        while (it.hasNext() && i < inputHistory.getItemCount() + 1 - index) {
-            previousInput = it.next();
-            i++;
+        if (index < 1 || index > history.size()) {
+            return null;
         }
         
-        return previousInput;
+        return history.get(index - 1);
     }
     
-    private final Object inputLock;
-    
     private final JFrame frame;
     
     private final Screen screen;
+    private final OutputChannel output;
+    
+    private final OutputPacer outputPacer;
     
     private final InputMap inputMap;
     private final ActionMap actionMap;
     
     private final Stack<LoginShell> activeShells;
-    private final FixedLengthQueue<String> inputHistory;
+    private final CommandHistory commandHistory;
     private final List<Server> servers;
     
-    private volatile char charTyped;
+    private final KeyTranslator keyTranslator;
+    private final CharRingBuffer typeahead;
+    private volatile boolean isSkipRequested;
+    private volatile boolean isReadingLine;
+    
+    private final LineEditor lineEditor;
+    private final StringBuilder inputRedrawBuffer;
     
     private String motd;
     
     // Don't allow this class to be instantiated externally
     private Terminal()
     {
-        inputLock = new Object();
-        
         frame = new JFrame();
         
         Screen.ScreenColor bg = Screen.ScreenColor.BLACK;
@@ -597,6 +849,9 @@ public final class Terminal implements Debuggable
         Font font = Main.isWindows() ? DEFAULT_FONT_WIN : DEFAULT_FONT_OSX_NIX;
         int cursorBlinkRate = 300;
         screen = new Screen(COLUMNS, LINES, bg, fg, font, cursorBlinkRate);
+        output = new OutputChannel(screen);
+        
+        outputPacer = new OutputPacer();
         
         inputMap = new InputMap();
         actionMap = new ActionMap();
@@ -605,11 +860,17 @@ public final class Terminal implements Debuggable
         
         activeShells = new Stack<>();
         
-        inputHistory = new FixedLengthQueue<>(8);
+        commandHistory = new CommandHistory(CommandHistory.DEFAULT_CAPACITY);
         
         servers = new ArrayList<>();
         
-        charTyped = 0;
+        keyTranslator = new KeyTranslator();
+        typeahead = new CharRingBuffer(TYPEAHEAD_LENGTH);
+        isSkipRequested = false;
+        isReadingLine = false;
+        
+        lineEditor = new LineEditor(MAX_INPUT_LENGTH);
+        inputRedrawBuffer = new StringBuilder();
         
         motd = "";
         
@@ -710,225 +971,318 @@ public final class Terminal implements Debuggable
     }
     
     /*
-     * Registers all of the keystrokes that can be used for input.
+     * Sets up the translation of keyboard events into input characters.
      */
     private void registerInputKeys()
     {
-        // Lowercase letters
-        registerInputKey('a', KeyEvent.VK_A, 0);
-        registerInputKey('b', KeyEvent.VK_B, 0);
-        registerInputKey('c', KeyEvent.VK_C, 0);
-        registerInputKey('d', KeyEvent.VK_D, 0);
-        registerInputKey('e', KeyEvent.VK_E, 0);
-        registerInputKey('f', KeyEvent.VK_F, 0);
-        registerInputKey('g', KeyEvent.VK_G, 0);
-        registerInputKey('h', KeyEvent.VK_H, 0);
-        registerInputKey('i', KeyEvent.VK_I, 0);
-        registerInputKey('j', KeyEvent.VK_J, 0);
-        registerInputKey('k', KeyEvent.VK_K, 0);
-        registerInputKey('l', KeyEvent.VK_L, 0);
-        registerInputKey('m', KeyEvent.VK_M, 0);
-        registerInputKey('n', KeyEvent.VK_N, 0);
-        registerInputKey('o', KeyEvent.VK_O, 0);
-        registerInputKey('p', KeyEvent.VK_P, 0);
-        registerInputKey('q', KeyEvent.VK_Q, 0);
-        registerInputKey('r', KeyEvent.VK_R, 0);
-        registerInputKey('s', KeyEvent.VK_S, 0);
-        registerInputKey('t', KeyEvent.VK_T, 0);
-        registerInputKey('u', KeyEvent.VK_U, 0);
-        registerInputKey('v', KeyEvent.VK_V, 0);
-        registerInputKey('w', KeyEvent.VK_W, 0);
-        registerInputKey('x', KeyEvent.VK_X, 0);
-        registerInputKey('y', KeyEvent.VK_Y, 0);
-        registerInputKey('z', KeyEvent.VK_Z, 0);
-        
-        // Uppercase letters
-        registerInputKey('A', KeyEvent.VK_A, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('B', KeyEvent.VK_B, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('C', KeyEvent.VK_C, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('D', KeyEvent.VK_D, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('E', KeyEvent.VK_E, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('F', KeyEvent.VK_F, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('G', KeyEvent.VK_G, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('H', KeyEvent.VK_H, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('I', KeyEvent.VK_I, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('J', KeyEvent.VK_J, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('K', KeyEvent.VK_K, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('L', KeyEvent.VK_L, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('M', KeyEvent.VK_M, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('N', KeyEvent.VK_N, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('O', KeyEvent.VK_O, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('P', KeyEvent.VK_P, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('Q', KeyEvent.VK_Q, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('R', KeyEvent.VK_R, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('S', KeyEvent.VK_S, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('T', KeyEvent.VK_T, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('U', KeyEvent.VK_U, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('V', KeyEvent.VK_V, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('W', KeyEvent.VK_W, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('X', KeyEvent.VK_X, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('Y', KeyEvent.VK_Y, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('Z', KeyEvent.VK_Z, KeyEvent.SHIFT_DOWN_MASK);
-        
-        // Numbers
-        registerInputKey('0', KeyEvent.VK_0, 0);
-        registerInputKey('1', KeyEvent.VK_1, 0);
-        registerInputKey('2', KeyEvent.VK_2, 0);
-        registerInputKey('3', KeyEvent.VK_3, 0);
-        registerInputKey('4', KeyEvent.VK_4, 0);
-        registerInputKey('5', KeyEvent.VK_5, 0);
-        registerInputKey('6', KeyEvent.VK_6, 0);
-        registerInputKey('7', KeyEvent.VK_7, 0);
-        registerInputKey('8', KeyEvent.VK_8, 0);
-        registerInputKey('9', KeyEvent.VK_9, 0);
-        registerInputKey('0', KeyEvent.VK_NUMPAD0, 0);
-        registerInputKey('1', KeyEvent.VK_NUMPAD1, 0);
-        registerInputKey('2', KeyEvent.VK_NUMPAD2, 0);
-        registerInputKey('3', KeyEvent.VK_NUMPAD3, 0);
-        registerInputKey('4', KeyEvent.VK_NUMPAD4, 0);
-        registerInputKey('5', KeyEvent.VK_NUMPAD5, 0);
-        registerInputKey('6', KeyEvent.VK_NUMPAD6, 0);
-        registerInputKey('7', KeyEvent.VK_NUMPAD7, 0);
-        registerInputKey('8', KeyEvent.VK_NUMPAD8, 0);
-        registerInputKey('9', KeyEvent.VK_NUMPAD9, 0);
-        
-        // Symbols
-        registerInputKey('-', KeyEvent.VK_MINUS, 0);
-        registerInputKey('=', KeyEvent.VK_EQUALS, 0);
-        registerInputKey('[', KeyEvent.VK_OPEN_BRACKET, 0);
-        registerInputKey(']', KeyEvent.VK_CLOSE_BRACKET, 0);
-        registerInputKey('\\', KeyEvent.VK_BACK_SLASH, 0);
-        registerInputKey(';', KeyEvent.VK_SEMICOLON, 0);
-        registerInputKey('\'', KeyEvent.VK_QUOTE, 0);
-        registerInputKey(',', KeyEvent.VK_COMMA, 0);
-        registerInputKey('.', KeyEvent.VK_PERIOD, 0);
-        registerInputKey('/', KeyEvent.VK_SLASH, 0);
-        registerInputKey('/', KeyEvent.VK_DIVIDE, 0);
-        registerInputKey('*', KeyEvent.VK_MULTIPLY, 0);
-        registerInputKey('-', KeyEvent.VK_SUBTRACT, 0);
-        registerInputKey('+', KeyEvent.VK_ADD, 0);
-        registerInputKey('.', KeyEvent.VK_DECIMAL, 0);
-        registerInputKey(' ', KeyEvent.VK_SPACE, 0);
-        registerInputKey('!', KeyEvent.VK_1, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('@', KeyEvent.VK_2, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('#', KeyEvent.VK_3, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('$', KeyEvent.VK_4, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('%', KeyEvent.VK_5, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('^', KeyEvent.VK_6, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('&', KeyEvent.VK_7, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('*', KeyEvent.VK_8, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('(', KeyEvent.VK_9, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey(')', KeyEvent.VK_0, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('_', KeyEvent.VK_MINUS, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('+', KeyEvent.VK_EQUALS, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('{', KeyEvent.VK_OPEN_BRACKET, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('}', KeyEvent.VK_CLOSE_BRACKET,KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('|', KeyEvent.VK_BACK_SLASH, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey(':', KeyEvent.VK_SEMICOLON, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('"', KeyEvent.VK_QUOTE, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('<', KeyEvent.VK_COMMA, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('>', KeyEvent.VK_PERIOD, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('?', KeyEvent.VK_SLASH, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('/', KeyEvent.VK_DIVIDE, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('*', KeyEvent.VK_MULTIPLY, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('-', KeyEvent.VK_SUBTRACT, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('+', KeyEvent.VK_ADD, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey(' ', KeyEvent.VK_SPACE, KeyEvent.SHIFT_DOWN_MASK);
+        // Printable characters, including those on non-US keyboard layouts
+        keyTranslator.mapTypedRange(' ', '~');
+        keyTranslator.mapTypedRange('\u00A1', '\u00FF');
         
         // Control characters
-        registerInputKey('\b', KeyEvent.VK_BACK_SPACE, 0);
-        registerInputKey('\b', KeyEvent.VK_BACK_SPACE, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey('\n', KeyEvent.VK_ENTER, 0);
-        registerInputKey('\n', KeyEvent.VK_ENTER, KeyEvent.SHIFT_DOWN_MASK);
-        registerInputKey(INPUT_HISTORY_CYCLE_UP, KeyEvent.VK_UP, 0);
-        registerInputKey(INPUT_HISTORY_CYCLE_DOWN, KeyEvent.VK_DOWN, 0);
+        keyTranslator.mapTyped('\b', '\b');
+        keyTranslator.mapTyped('\n', '\n');
+        keyTranslator.mapTyped('\r', '\n');
+        keyTranslator.mapPressed(KeyEvent.VK_UP, 0, INPUT_HISTORY_CYCLE_UP);
+        keyTranslator.mapPressed(KeyEvent.VK_DOWN, 0, INPUT_HISTORY_CYCLE_DOWN);
+        keyTranslator.mapPressed(KeyEvent.VK_LEFT, 0, INPUT_CURSOR_LEFT);
+        keyTranslator.mapPressed(KeyEvent.VK_RIGHT, 0, INPUT_CURSOR_RIGHT);
+        keyTranslator.mapPressed(KeyEvent.VK_HOME, 0, INPUT_CURSOR_HOME);
+        keyTranslator.mapPressed(KeyEvent.VK_INSERT, 0, INPUT_TOGGLE_OVERWRITE);
+        keyTranslator.mapPressed(KeyEvent.VK_W, KeyEvent.CTRL_DOWN_MASK,
+                INPUT_DELETE_WORD);
+        keyTranslator.mapPressed(KeyEvent.VK_R, KeyEvent.CTRL_DOWN_MASK,
+                INPUT_SEARCH_HISTORY);
+        keyTranslator.mapPressed(KeyEvent.VK_G, KeyEvent.CTRL_DOWN_MASK,
+                INPUT_CANCEL);
+        
+        screen.getComponent().addKeyListener(new KeyAdapter()
+        {
+            @Override
+            public void keyTyped(KeyEvent e)
+            {
+                typeKey(e, keyTranslator.translateTyped(e));
+            }
+            
+            @Override
+            public void keyPressed(KeyEvent e)
+            {
+                typeKey(e, keyTranslator.translatePressed(e));
+            }
+        });
         
         registerESCKey();
+        registerScrollKeys();
+        registerSkipKey();
+        registerPasteKey();
+    }
+    
+    /*
+     * Queues the input produced by a keyboard event.
+     */
+    private void typeKey(KeyEvent e, char c)
+    {
+        if (c == KeyTranslator.NONE) {
+            return;
+        }
+        e.consume();
+                
+        // Typing brings the cursor back into view
+        screen.scrollToBottom();
+                    
+        // Queue the character; beep if too much has been typed ahead
+        if (!typeahead.offer(c)) {
+            Toolkit.getDefaultToolkit().beep();
+        }
     }
     
     /*
-     * Registers a keystroke for input.
+     * Maps the escape key and defines its action.
      */
-    private void registerInputKey(final char ch, int keyChar, int modifiers)
+    private void registerESCKey()
     {
         AbstractAction keyAction = new AbstractAction()
         {
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                synchronized (inputLock) {
-                    char c = ch;
-                    
-                    // Handle caps lock
-                    if (isCapsLockEnabled()) {
-                        if (c > 0x40 && c < 0x5B) {         // ASCII a-z
-                            // Make uppercase
-                            c += 0x20;
-                        } else if (c > 0x60 && c < 0x7B) {  // ASCII A-Z
-                            // Make lowercase
-                            c -= 0x20;
-                        }
+                // Attempt to close window
+                frame.dispatchEvent(
+                        new WindowEvent(frame, WindowEvent.WINDOW_CLOSING));
+            }
+        };
+        
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "ESC");
+        actionMap.put("ESC", keyAction);
+    }
+    
+    /*
+     * Maps the page up and page down keys and defines their actions.
+     */
+    private void registerScrollKeys()
+    {
+        AbstractAction pageUpAction = new AbstractAction()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                // Scroll back through the scrollback
+                screen.pageUp();
+            }
+        };
+        
+        AbstractAction pageDownAction = new AbstractAction()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                // Scroll forward towards the cursor
+                screen.pageDown();
+            }
+        };
+        
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_UP, 0), "PGUP");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_DOWN, 0), "PGDN");
+        actionMap.put("PGUP", pageUpAction);
+        actionMap.put("PGDN", pageDownAction);
+    }
+    
+    /*
+     * Maps the end key, which skips to the end of the output being printed,
+     * or moves the cursor to the end of the line that is being typed.
+     */
+    private void registerSkipKey()
+    {
+        AbstractAction skipAction = new AbstractAction()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                screen.scrollToBottom();
+                
+                // Move to the end of the input line
+                if (isReadingLine) {
+                    if (!typeahead.offer(INPUT_CURSOR_END)) {
+                        Toolkit.getDefaultToolkit().beep();
                     }
-                    
-                    charTyped = c;
-                    inputLock.notify();
+                    return;
                 }
+                
+                // Print the rest of the current output at once
+                isSkipRequested = true;
+                outputPacer.wakeUp();
             }
         };
         
-        inputMap.put(KeyStroke.getKeyStroke(keyChar, modifiers), ch);
-        actionMap.put(ch, keyAction);
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_END, 0), "SKIP");
+        actionMap.put("SKIP", skipAction);
     }
     
     /*
-     * Maps the escape key and defines its action.
+     * Maps Ctrl+Shift+V and the middle mouse button to paste from the
+     * clipboard. The middle mouse button pastes the current selection on
+     * systems that have one.
      */
-    private void registerESCKey()
+    private void registerPasteKey()
     {
-        AbstractAction keyAction = new AbstractAction()
+        AbstractAction pasteAction = new AbstractAction()
         {
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                // Attempt to close window
-                frame.dispatchEvent(
-                        new WindowEvent(frame, WindowEvent.WINDOW_CLOSING));
+                paste(Toolkit.getDefaultToolkit().getSystemClipboard());
             }
         };
         
-        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "ESC");
-        actionMap.put("ESC", keyAction);
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_V,
+                KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK), "PASTE");
+        actionMap.put("PASTE", pasteAction);
+        
+        screen.getComponent().addMouseListener(new MouseAdapter()
+        {
+            @Override
+            public void mouseClicked(MouseEvent e)
+            {
+                if (!SwingUtilities.isMiddleMouseButton(e)) {
+                    return;
+                }
+                
+                Toolkit tk = Toolkit.getDefaultToolkit();
+                Clipboard selection = tk.getSystemSelection();
+                paste(selection != null ? selection : tk.getSystemClipboard());
+            }
+        });
+    }
+    
+    /*
+     * Pastes the text from a clipboard into the typeahead buffer as if it had
+     * been typed. Line breaks are turned into newlines and other control
+     * characters are dropped. Text that has a line longer than an input line
+     * or that doesn't fit in the typeahead buffer is not pasted at all.
+     */
+    private void paste(Clipboard clipboard)
+    {
+        String text;
+        char[] chars;
+        int length;
+        int lineLength;
+        char c;
+        
+        if (clipboard == null) {
+            return;
+        }
+        
+        // Get the clipboard text
+        try {
+            text = (String)clipboard.getData(DataFlavor.stringFlavor);
+        } catch (UnsupportedFlavorException | IOException
+                | IllegalStateException ex) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        
+        // Keep the characters that can be typed
+        chars = new char[text.length()];
+        length = 0;
+        lineLength = 0;
+        for (int i = 0; i < text.length(); i++) {
+            c = text.charAt(i);
+            if (c == '\r') {
+                // Treat CR LF as a single newline
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    continue;
+                }
+                c = '\n';
+            } else if (c == '\t') {
+                c = ' ';
+            }
+            
+            if (c == '\n') {
+                chars[length++] = c;
+                lineLength = 0;
+            } else if (c > 0x1F && c < 0x7F) {
+                chars[length++] = c;
+                lineLength++;
+            }
+            
+            // Don't paste a line that would be cut off
+            if (lineLength > MAX_INPUT_LENGTH) {
+                Toolkit.getDefaultToolkit().beep();
+                return;
+            }
+        }
+        
+        // Don't paste part of the text; beep if it doesn't fit
+        if (length > typeahead.remainingCapacity()) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        
+        // Pasting brings the cursor back into view
+        screen.scrollToBottom();
+        
+        // Queue the text all at once
+        typeahead.offer(chars, 0, length);
     }
     
     /*
-     * Checks whether caps lock is enabled on the keyboard.
+     * Writes the debug info of the screen buffer to a data stream. The screen
+     * buffer belongs to the output drain thread, so the info is written there
+     * and handed back. If the drain thread doesn't respond (for instance
+     * because it has crashed), the screen buffer is left out.
      */
-    private boolean isCapsLockEnabled()
+    private void printScreenBufferInfo(PrintWriter pw)
     {
-        Toolkit tk = Toolkit.getDefaultToolkit();
-        return tk.getLockingKeyState(KeyEvent.VK_CAPS_LOCK);
+        final StringWriter info = new StringWriter();
+        boolean isDone;
+        
+        try {
+            isDone = output.runAndWait(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    PrintWriter infoWriter = new PrintWriter(info);
+                    try {
+                        screen.getScreenBuffer().printDebugInfo(infoWriter);
+                    } catch (RuntimeException ex) {
+                        infoWriter.println("Screen buffer info failed: "
+                                + ex);
+                    }
+                    infoWriter.flush();
+                }
+            }, DEBUG_INFO_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            isDone = false;
+        }
+        
+        if (isDone) {
+            pw.print(info);
+        } else {
+            pw.println("Screen Buffer");
+            pw.println("-------------");
+            pw.println("<screen output not responding>");
+            pw.println();
+        }
     }
     
     @Override
     public void printDebugInfo(PrintWriter pw)
     {
-        screen.getScreenBuffer().printDebugInfo(pw);
+        printScreenBufferInfo(pw);
+        
+        ResourceLoader.printCacheInfo(pw);
         
         pw.println("Input Buffer");
         pw.println("------------");
-        for (int i = 0; i < INPUT_BUFFER_LENGTH; i++) {
-            if (INPUT_BUFFER[i] == 0) {
-                break;
-            }
-            pw.print(INPUT_BUFFER[i]);
-        }
-        pw.println();
+        pw.println(lineEditor);
         pw.println();
 
         pw.println("Input History");
         pw.println("-------------");
-        for (String s : inputHistory) {
-            pw.println(s);
+        for (int i = commandHistory.size() - 1; i >= 0; i--) {
+            pw.println(commandHistory.get(i));
         }
         pw.println();
         
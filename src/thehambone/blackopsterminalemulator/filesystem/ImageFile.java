@@ -53,7 +53,8 @@ public final class ImageFile extends PrintableFile
     public void print()
     {
         // Load file data
-        BufferedImage image = ResourceLoader.loadImageFile(getResourceName());
+        BufferedImage image
+                = ResourceLoader.loadScaledImageFile(getResourceName());
         
         // Ignore and continue if no image data was loaded
         if (image == null) {
@@ -61,6 +62,6 @@ public final class ImageFile extends PrintableFile
         }
         
         // Output the image to the terminal
-        Terminal.println(image);
+        Terminal.println(image, true);
     }
 }
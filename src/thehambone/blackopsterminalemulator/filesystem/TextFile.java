@@ -24,7 +24,11 @@
 
 package thehambone.blackopsterminalemulator.filesystem;
 
+import java.io.IOException;
+import java.io.Reader;
+import thehambone.blackopsterminalemulator.PagedText;
 import thehambone.blackopsterminalemulator.Terminal;
+import thehambone.blackopsterminalemulator.io.Logger;
 import thehambone.blackopsterminalemulator.io.ResourceLoader;
 
 /**
@@ -51,12 +55,22 @@ public final class TextFile extends PrintableFile
     @Override
     public void print()
     {
-        // Load file data
-        String fileData = ResourceLoader.loadTextFile(getResourceName());
+        // Stream files that are too large to keep in memory
+        if (ResourceLoader.isLargeTextFile(getResourceName())) {
+            try (Reader in = ResourceLoader.openTextFile(getResourceName())) {
+                Terminal.print(in);
+            } catch (IOException ex) {
+                Logger.stackTrace(ex);
+            }
+            return;
+        }
+        
+        // Load and lay out the file data, unless it is already in the cache
+        PagedText text = ResourceLoader.loadPagedTextFile(getResourceName());
         
         // Output the contents of the file
-        /* Print entire file as a single string to allow for the "--MORE--"
-           pager prompt to show */
-        Terminal.print(fileData);
+        /* Print entire file at once to allow for the "--MORE--" pager prompt
+           to show */
+        Terminal.print(text);
     }
 }
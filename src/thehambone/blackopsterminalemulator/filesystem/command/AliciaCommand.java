@@ -102,7 +102,7 @@ public class AliciaCommand extends ExecutableFile
         @Override
         protected void onLaunch()
         {
-            Terminal.println("Welcome to Alicia, your virtual therapist.  "
+            Terminal.writeln("Welcome to Alicia, your virtual therapist.  "
                     + "(type quit to exit)");
         }
         
@@ -113,17 +113,17 @@ public class AliciaCommand extends ExecutableFile
             
             // Simple input loop
             while (isRunning()) {
-                Terminal.print(getPrompt());
+                Terminal.write(getPrompt());
                 input = Terminal.readLine();
                 if (input.equalsIgnoreCase("quit")) {
-                    Terminal.println("It's been nice talking with you!  "
+                    Terminal.writeln("It's been nice talking with you!  "
                             + "Goodbye!");
                     terminate();
                 } else {
                     /* Alicia gives a random response regardless of what the
                        user types. What a great listener!
                     */
-                    Terminal.println(getRandomResponse());
+                    Terminal.writeln(getRandomResponse());
                 }
             }
         }
@@ -97,7 +97,7 @@ public class CatCommand extends ExecutableFile
         
         // Exit if no arguments provided
         if (args.length == 0) {
-            Terminal.println("Error:  Invalid Input");
+            Terminal.writeln("Error:  Invalid Input");
             return;
         }
         
@@ -116,7 +116,7 @@ public class CatCommand extends ExecutableFile
          */
         if (pathTokens.length > 2
                 && (pathTokens[0].isEmpty() && pathTokens[1].isEmpty())) {
-            Terminal.println("Error:  Invalid Input");
+            Terminal.writeln("Error:  Invalid Input");
             return;
         }
         
@@ -141,7 +141,7 @@ public class CatCommand extends ExecutableFile
                 } else if (i == pathTokens.length - 1) {
                     continue;
                 }
-                Terminal.println("Error:  Invalid Path");
+                Terminal.writeln("Error:  Invalid Path");
                 return;
             }
             
@@ -168,13 +168,13 @@ public class CatCommand extends ExecutableFile
             fso = fileSystem.getFileSystemObject(token);
             
             if (fso == null) {
-                Terminal.println("Error:  Invalid Path");
+                Terminal.writeln("Error:  Invalid Path");
                 return;
             }
             
             // Disallow the traversal of other users' homedirs
             if (fso instanceof HomeDirectory && fso != currentUserHomeDir) {
-                Terminal.println("Error:  Insufficient Permissions");
+                Terminal.writeln("Error:  Insufficient Permissions");
                 return;
             }
             
@@ -184,7 +184,7 @@ public class CatCommand extends ExecutableFile
         
         // This is printed if the user tries to print the root dir
         if (!currentObj.hasParent()) {
-            Terminal.println("Error:  File Not Found");
+            Terminal.writeln("Error:  File Not Found");
             return;
         }
         
@@ -67,7 +67,7 @@ public class CdCommand extends ExecutableFile
     private void printCurrentDirectory()
     {
         LoginShell shell = Terminal.getActiveLoginShell();
-        Terminal.println(shell.getCurrentDirectory().getPath());
+        Terminal.writeln(shell.getCurrentDirectory().getPath());
     }
     
     /*
@@ -157,7 +157,7 @@ public class CdCommand extends ExecutableFile
                 } else if (i == pathTokens.length - 1) {
                     continue;
                 }
-                Terminal.println("Error:  Invalid Path");
+                Terminal.writeln("Error:  Invalid Path");
                 return;
             }
             
@@ -185,7 +185,7 @@ public class CdCommand extends ExecutableFile
             
             
             if (fso == null) {
-                Terminal.println("Error:  Invalid Path");
+                Terminal.writeln("Error:  Invalid Path");
                 return;
             }
             
@@ -193,7 +193,7 @@ public class CdCommand extends ExecutableFile
             if (fso instanceof HomeDirectory && fso != currentUserHomeDir) {
                 // ...unless it is an 'unlisted' homedir
                 if (!((HomeDirectory)fso).isUnlisted()) {
-                    Terminal.println("Error:  Insufficient Permissions");
+                    Terminal.writeln("Error:  Insufficient Permissions");
                     return;
                 }
             }
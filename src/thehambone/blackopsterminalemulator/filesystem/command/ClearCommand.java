@@ -24,6 +24,7 @@
 
 package thehambone.blackopsterminalemulator.filesystem.command;
 
+import java.util.Arrays;
 import thehambone.blackopsterminalemulator.Terminal;
 import thehambone.blackopsterminalemulator.filesystem.ExecutableFile;
 
@@ -52,8 +53,8 @@ public class ClearCommand extends ExecutableFile
     public void exec(String[] args)
     {
         // Clear the screen by filling the screen with newlines
-        for (int i = 0; i < Terminal.LINES; i++) {
-            Terminal.println();
-        }
+        char[] newlines = new char[Terminal.LINES];
+        Arrays.fill(newlines, '\n');
+        Terminal.write(newlines, 0, newlines.length);
     }
 }
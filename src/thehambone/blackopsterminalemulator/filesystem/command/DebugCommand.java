@@ -26,6 +26,8 @@ package thehambone.blackopsterminalemulator.filesystem.command;
 
 import java.awt.Font;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import thehambone.blackopsterminalemulator.Main;
 import thehambone.blackopsterminalemulator.Screen;
 import thehambone.blackopsterminalemulator.Terminal;
@@ -60,22 +62,24 @@ public class DebugCommand extends ExecutableFile
      */
     private void printUsage()
     {
-        Terminal.println("Usage: debug <options>\n");
-        Terminal.println("Options:");
-        Terminal.println("\tbg <colorID>\t\t\t\t"
+        Terminal.writeln("Usage: debug <options>\n");
+        Terminal.writeln("Options:");
+        Terminal.writeln("\tbg <colorID>\t\t\t\t"
                 + "sets the background color");
-        Terminal.println("\tfg <colorID>\t\t\t\t"
+        Terminal.writeln("\tfg <colorID>\t\t\t\t"
                 + "sets the foreground color");
-        Terminal.println();
-        Terminal.println("\tcrashdump\t\t\t\t\t"
+        Terminal.writeln();
+        Terminal.writeln("\tcache\t\t\t\t\t\t"
+                + "shows resource cache statistics");
+        Terminal.writeln("\tcrashdump\t\t\t\t\t"
                 + "creates a crash dump file");
-        Terminal.println("\trtexception [message]\t\t"
+        Terminal.writeln("\trtexception [message]\t\t"
                 + "creates a fake RuntimeException");
-        Terminal.println();
-        Terminal.println("\treloadfs\t\t\t\t\t"
+        Terminal.writeln();
+        Terminal.writeln("\treloadfs\t\t\t\t\t"
                 + "reloads file system config");
-        Terminal.println();
-        Terminal.println("\tfont <name>\t\t\t\t\t"
+        Terminal.writeln();
+        Terminal.writeln("\tfont <name>\t\t\t\t\t"
                 + "sets the terminal font");
     }
     
@@ -87,6 +91,16 @@ public class DebugCommand extends ExecutableFile
         throw new RuntimeException(message);
     }
     
+    /*
+     * Shows the hit, miss and eviction counts of the resource caches.
+     */
+    private void printCacheInfo()
+    {
+        StringWriter sw = new StringWriter();
+        ResourceLoader.printCacheInfo(new PrintWriter(sw));
+        Terminal.write(sw.toString());
+    }
+    
     /*
      * Writes a crash report to a file without actually crashing the program.
      */
@@ -98,12 +112,12 @@ public class DebugCommand extends ExecutableFile
         } catch (IOException ex) {
             Logger.error("Failed to write crash dump");
             Logger.stackTrace(ex);
-            Terminal.println("Failed to write crash dump ("
+            Terminal.writeln("Failed to write crash dump ("
                     + ex.getClass().getSimpleName() + ": " + ex.getMessage());
         }
         
         if (!fileName.isEmpty()) {
-            Terminal.println("Crash dump saved to " + fileName + ".");
+            Terminal.writeln("Crash dump saved to " + fileName + ".");
         }
     }
     
@@ -113,7 +127,7 @@ public class DebugCommand extends ExecutableFile
     private void listColors()
     {
         for (Screen.ScreenColor color : Screen.ScreenColor.values()) {
-            Terminal.println(color.ordinal() + ": " + color.name());
+            Terminal.writeln(color.ordinal() + ": " + color.name());
         }
     }
     
@@ -123,7 +137,7 @@ public class DebugCommand extends ExecutableFile
     private void reloadFileSystem()
     {
         ResourceLoader.loadFileSystemConfiguration(Main.registerExecutables());
-        Terminal.println("File system reloaded");
+        Terminal.writeln("File system reloaded");
     }
     
     /*
@@ -159,8 +173,8 @@ public class DebugCommand extends ExecutableFile
         switch (args[0]) {
             case "bg":
                 if (args.length - 1 < 1) {
-                    Terminal.println("Usage: bg <colorID>");
-                    Terminal.println("Color IDs:");
+                    Terminal.writeln("Usage: bg <colorID>");
+                    Terminal.writeln("Color IDs:");
                     listColors();
                     return;
                 }
@@ -168,14 +182,18 @@ public class DebugCommand extends ExecutableFile
                 setBG(bgColorID);
                 break;
                 
+            case "cache":
+                printCacheInfo();
+                break;
+            
             case "crashdump":
                 createCrashDump();
                 break;
                 
             case "fg":
                 if (args.length - 1 < 1) {
-                    Terminal.println("Usage: fg <colorID>");
-                    Terminal.println("Color IDs:");
+                    Terminal.writeln("Usage: fg <colorID>");
+                    Terminal.writeln("Color IDs:");
                     listColors();
                     return;
                 }
@@ -189,7 +207,7 @@ public class DebugCommand extends ExecutableFile
                     fontName += args[i + 1] + " ";
                 }
                 fontName = fontName.trim();
-                Terminal.println("Setting font to " + fontName + "...");
+                Terminal.writeln("Setting font to " + fontName + "...");
                 Font f = new Font(fontName, Font.PLAIN, 13);
                 Terminal.getScreen().setFont(f);
                 break;
@@ -207,7 +225,7 @@ public class DebugCommand extends ExecutableFile
                 break;
                 
             default:
-                Terminal.println("Error:  Invalid Argument");
+                Terminal.writeln("Error:  Invalid Argument");
         }
     }
 }
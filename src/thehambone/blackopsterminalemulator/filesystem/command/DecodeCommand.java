@@ -145,6 +145,6 @@ public class DecodeCommand extends ExecutableFile
         }
         
         // Print the result
-        Terminal.println(result);
+        Terminal.writeln(result);
     }
 }
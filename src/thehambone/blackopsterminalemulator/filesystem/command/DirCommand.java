@@ -74,6 +74,7 @@ public class DirCommand extends ExecutableFile
         
         List<FileSystemObject> objs = cd.getChildren();
         
+        StringBuilder out = new StringBuilder();
         FileSystemObject o;
         String objName;
         int itemsPrinted = 0;
@@ -96,13 +97,13 @@ public class DirCommand extends ExecutableFile
             }
             
             // Print object name
-            Terminal.print(' ');
-            Terminal.print(objName);
+            out.append(' ');
+            out.append(objName);
             itemsPrinted++;
             
             // Print a newline after every 4 items printed
             if (itemsPrinted % 4 == 0) {
-                Terminal.println();
+                out.append('\n');
                 continue;
             }
             
@@ -110,10 +111,11 @@ public class DirCommand extends ExecutableFile
             int tabCount = 5 - (int)roundHalfDown(
                             (double)objName.length() / ScreenBuffer.TAB_LENGTH);
             for (int j = 0; j < tabCount; j++) {
-                Terminal.print('\t');
+                out.append('\t');
             }
         }
         
-        Terminal.println();
+        // Print the whole listing at once
+        Terminal.writeln(out);
     }
 }
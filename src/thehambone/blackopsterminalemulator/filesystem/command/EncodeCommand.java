@@ -143,6 +143,6 @@ public class EncodeCommand extends ExecutableFile
             
         }
 
-        Terminal.println(result);
+        Terminal.writeln(result);
     }
 }
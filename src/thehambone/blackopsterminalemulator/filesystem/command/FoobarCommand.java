@@ -51,6 +51,6 @@ public class FoobarCommand extends ExecutableFile
     @Override
     public void exec(String[] args)
     {
-        Terminal.println("Fee Fie Foe Foo!");
+        Terminal.writeln("Fee Fie Foe Foo!");
     }
 }
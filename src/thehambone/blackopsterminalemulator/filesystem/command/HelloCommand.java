@@ -54,8 +54,8 @@ public class HelloCommand extends ExecutableFile
     {
         // Show a help messsage if no arguments are provided
         if (args.length == 0) {
-            Terminal.println("Error:  Invalid Input - common usages include:");
-            Terminal.println("hello brother, hello nurse, and hello sailor");
+            Terminal.writeln("Error:  Invalid Input - common usages include:");
+            Terminal.writeln("hello brother, hello nurse, and hello sailor");
             return;
         }
         
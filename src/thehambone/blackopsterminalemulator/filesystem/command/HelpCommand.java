@@ -51,32 +51,32 @@ public class HelpCommand extends ExecutableFile
     @Override
     public void exec(String[] args)
     {
-        Terminal.println("System Help:\n");
-        Terminal.println("help\tdisplays "
+        Terminal.writeln("System Help:\n");
+        Terminal.writeln("help\tdisplays "
                 + "this help information");
-        Terminal.println("cat\t\t\t\t   "
+        Terminal.writeln("cat\t\t\t\t   "
                 + "prints the contents of a file (.txt,.pic,.snd)");
-        Terminal.println("cd [ |.|..|path]   "
+        Terminal.writeln("cd [ |.|..|path]   "
                 + "changes the current directory.");
-        Terminal.println("clear\t\t\t   "
+        Terminal.writeln("clear\t\t\t   "
                 + "clear the display");
-        Terminal.println("dir\t\t\t\t   "
+        Terminal.writeln("dir\t\t\t\t   "
                 + "displays the contents of the current directory");
-        Terminal.println("decode\t\t\t   "
+        Terminal.writeln("decode\t\t\t   "
                 + "decodes a encrypted string using an agency standard cypher");
-        Terminal.println("encode\t\t\t   "
+        Terminal.writeln("encode\t\t\t   "
                 + "encodes a string using an agency standard cypher");
-        Terminal.println("exit\t\t\t   "
+        Terminal.writeln("exit\t\t\t   "
                 + "exits the current login session");
-        Terminal.println("help\t\t\t   "
+        Terminal.writeln("help\t\t\t   "
                 + "display's this help screen");
-        Terminal.println("login\t\t\t   "
+        Terminal.writeln("login\t\t\t   "
                 + "starts a new login session on the current system");
-        Terminal.println("mail\t\t\t   "
+        Terminal.writeln("mail\t\t\t   "
                 + "opens the current users mailbox");
-        Terminal.println("rlogin [system]\t   "
+        Terminal.writeln("rlogin [system]\t   "
                 + "attempts a login session on a remote system");
-        Terminal.println("who\t\t\t\t   "
+        Terminal.writeln("who\t\t\t\t   "
                 + "lists the users that have accounts on the current system");
     }
 }
@@ -57,7 +57,7 @@ public class LoginCommand extends ExecutableFile
         
         // Shouldn't ever happen, but in the rare event that it does...
         if (system == null) {
-            Terminal.println("Error:  unknown system");
+            Terminal.writeln("Error:  unknown system");
             return;
         }
         
@@ -78,12 +78,12 @@ public class MailCommand extends ExecutableFile
         }
         
         /*
-         * Prints n tabs to the console.
+         * Appends n tabs to the output.
          */
-        private void printTabs(int n)
+        private void appendTabs(StringBuilder out, int n)
         {
             for (int i = 0; i < n; i++) {
-                Terminal.print('\t');
+                out.append('\t');
             }
         }
         
@@ -92,8 +92,9 @@ public class MailCommand extends ExecutableFile
          */
         private void showInbox()
         {
-            Terminal.println("id\t\t\t from\t\t\t\t\t  "
-                    + "date\t\t\t\t\t   subject");
+            StringBuilder out = new StringBuilder();
+            out.append("id\t\t\t from\t\t\t\t\t  "
+                    + "date\t\t\t\t\t   subject\n");
             
             List<Mail> mail = mailbox.getAllMail();
             Mail m;
@@ -104,26 +105,28 @@ public class MailCommand extends ExecutableFile
                 
                 // Print number
                 if (i < 10) {
-                    Terminal.print(' ');
+                    out.append(' ');
                 }
-                Terminal.print(i + " ");
+                out.append(i).append(' ');
                 
                 // Print sender
-                Terminal.print(m.getSender());
+                out.append(m.getSender());
                 tabCount = 7 - (int)Math.round((double)
                         m.getSender().length() / ScreenBuffer.TAB_LENGTH);
-                printTabs(tabCount);
+                appendTabs(out, tabCount);
                 
                 // Print date
-                Terminal.print(m.getDate());
+                out.append(m.getDate());
                 tabCount = 6 - (int)Math.floor((double)
                         m.getDate().length() / ScreenBuffer.TAB_LENGTH);
-                printTabs(tabCount);
+                appendTabs(out, tabCount);
                 
                 // Print subject
-                Terminal.print(m.getSubject());
-                Terminal.println();
+                out.append(m.getSubject()).append('\n');
             }
+            
+            // Print the whole inbox at once
+            Terminal.write(out);
         }
         
         /*
@@ -131,11 +134,11 @@ public class MailCommand extends ExecutableFile
          */
         private void showHelp()
         {
-            Terminal.println("Mail Help:");
-            Terminal.println("\t ?\t\t\tThis help information");
-            Terminal.println("\t i\t\t\tDisplay inbox");
-            Terminal.println("\t [n]\t\tRead Message [n]");
-            Terminal.println("\t q\t\t\tQuit Mail");
+            Terminal.writeln("Mail Help:");
+            Terminal.writeln("\t ?\t\t\tThis help information");
+            Terminal.writeln("\t i\t\t\tDisplay inbox");
+            Terminal.writeln("\t [n]\t\tRead Message [n]");
+            Terminal.writeln("\t q\t\t\tQuit Mail");
         }
         
         /*
@@ -144,10 +147,10 @@ public class MailCommand extends ExecutableFile
         private void openMail(int id)
         {
             Mail m = mailbox.getMail(id);
-            Terminal.println();
+            Terminal.writeln();
             if (m != null) {
                 m.open();
-                Terminal.println();
+                Terminal.writeln();
             }
         }
         
@@ -155,7 +158,7 @@ public class MailCommand extends ExecutableFile
         protected void onLaunch()
         {
             showInbox();
-            Terminal.println(DEFAULT_MESSAGE);
+            Terminal.writeln(DEFAULT_MESSAGE);
         }
         
         @Override
@@ -165,7 +168,7 @@ public class MailCommand extends ExecutableFile
             
             while (isRunning()) {
                 // Print prompt
-                Terminal.print(getPrompt());
+                Terminal.write(getPrompt());
                 
                 // Read input from the user
                 input = Terminal.readLine();
@@ -199,7 +202,7 @@ public class MailCommand extends ExecutableFile
                 }
                 
                 if (mailIDStr.isEmpty()) {
-                    Terminal.println(DEFAULT_MESSAGE);
+                    Terminal.writeln(DEFAULT_MESSAGE);
                     continue;
                 }
                 
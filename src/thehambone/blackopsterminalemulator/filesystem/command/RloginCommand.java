@@ -54,12 +54,12 @@ public class RloginCommand extends ExecutableFile
     public void exec(String[] args)
     {
         if (args.length == 0) {
-            Terminal.println("Error:  Invalid Input - expected machine name");
+            Terminal.writeln("Error:  Invalid Input - expected machine name");
             return;
         }
         
         if (Terminal.maxLoginShellsReached()) {
-            Terminal.println("Error:  Too many logins - "
+            Terminal.writeln("Error:  Too many logins - "
                     + "Use exit to close open shells");
             return;
         }
@@ -67,7 +67,7 @@ public class RloginCommand extends ExecutableFile
         Server system = Terminal.getServer(args[0]);
         
         if (system == null) {
-            Terminal.println("Error:  unknown system");
+            Terminal.writeln("Error:  unknown system");
             return;
         }
         
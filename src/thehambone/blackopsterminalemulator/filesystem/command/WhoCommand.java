@@ -62,7 +62,7 @@ public class WhoCommand extends ExecutableFile
         // List all users, skip unlisted users
         for (UserAccount u : users) {
             if (!u.getHomeDirectory().isUnlisted()) {
-                Terminal.println(u.getUsername());
+                Terminal.writeln(u.getUsername());
             }
         }
     }
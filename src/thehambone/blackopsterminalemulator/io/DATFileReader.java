@@ -28,6 +28,7 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 
 /**
  * This class provides a means to read the terminal configuration files (.dat)
@@ -57,7 +58,18 @@ public class DATFileReader
      */
     public DATFileReader(String fileName) throws FileNotFoundException
     {
-        reader = new BufferedReader(new FileReader(fileName));
+        this(new FileReader(fileName));
+    }
+    
+    /**
+     * Creates a new {@code DATFileReader} object that reads from a character
+     * stream.
+     * 
+     * @param in the stream to read
+     */
+    public DATFileReader(Reader in)
+    {
+        reader = new BufferedReader(in);
         
         fieldSeparator = ',';
         commentChar = 0;
@@ -0,0 +1,288 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator.io;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import thehambone.blackopsterminalemulator.ScreenBuffer;
+import thehambone.blackopsterminalemulator.util.Debuggable;
+
+/**
+ * An {@code ImageDiskCache} keeps images that have already been decoded and
+ * scaled for the screen in a directory, so that printing an image again does
+ * not need the image codec or the scaler.
+ * <p>
+ * Each image is stored in its own file as a short header followed by the raw
+ * pixels. The layout of a file is:
+ * <pre>
+ *   magic            8 bytes    "BLOTEIMG"
+ *   version          int
+ *   scale factor     float
+ *   source length    long
+ *   source modified  long
+ *   width            int
+ *   height           int
+ *   has alpha        int        0 for RGB pixels, 1 for ARGB pixels
+ *   pixels           width * height ints, row by row
+ * </pre>
+ * All numbers are big-endian. The scale factor and the length and
+ * modification time of the source image are checked when the image is
+ * loaded; if any of them differ, the cached image is ignored and rebuilt.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class ImageDiskCache implements Debuggable
+{
+    private static final byte[] MAGIC
+            = "BLOTEIMG".getBytes(Charset.forName("UTF-8"));
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH
+            = MAGIC.length + 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    private static final String FILE_EXTENSION = ".px";
+    
+    private static final DirectColorModel RGB_MODEL
+            = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+    
+    private final File dir;
+    
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong writeCount;
+    
+    /**
+     * Creates a new {@code ImageDiskCache} that keeps its files in the
+     * specified directory. The directory is created when the first image is
+     * stored.
+     * 
+     * @param dir the cache directory
+     */
+    public ImageDiskCache(File dir)
+    {
+        this.dir = dir;
+        
+        hitCount = new AtomicLong();
+        missCount = new AtomicLong();
+        writeCount = new AtomicLong();
+    }
+    
+    /**
+     * Gets the directory that holds the cached images.
+     * 
+     * @return the cache directory
+     */
+    public File getDirectory()
+    {
+        return dir;
+    }
+    
+    /**
+     * Loads a cached image. The image is only returned if it was scaled with
+     * the current scale factor from a source of the same length and
+     * modification time.
+     * 
+     * @param name the name of the image, such as its resource path
+     * @param sourceLength the length of the source image in bytes
+     * @param sourceModified the time at which the source image was last
+     *                       modified
+     * @return the cached image, or {@code null} if the image is not cached or
+     *         is out of date
+     */
+    public BufferedImage get(String name, long sourceLength,
+            long sourceModified)
+    {
+        File file = getFile(name);
+        if (!file.isFile()) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        
+        BufferedImage image = null;
+        try {
+            image = read(file, sourceLength, sourceModified);
+        } catch (IOException | RuntimeException ex) {
+            // A corrupt file is treated as missing and will be overwritten
+            Logger.error("Failed to read cached image: %s\n", file);
+        }
+        
+        if (image == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        
+        return image;
+    }
+    
+    /**
+     * Stores an image in the cache. The image must store its pixels as packed
+     * RGB or ARGB integers, as the images made by
+     * {@link ScreenBuffer#scaleImage(BufferedImage)} do.
+     * 
+     * @param name the name of the image, such as its resource path
+     * @param sourceLength the length of the source image in bytes
+     * @param sourceModified the time at which the source image was last
+     *                       modified
+     * @param image the scaled image
+     * @throws IOException if the image cannot be written
+     */
+    public void put(String name, long sourceLength, long sourceModified,
+            BufferedImage image) throws IOException
+    {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB
+                && type != BufferedImage.TYPE_INT_ARGB) {
+            throw new IllegalArgumentException(
+                    "Image pixels must be packed integers");
+        }
+        
+        int width = image.getWidth();
+        int height = image.getHeight();
+        
+        // Copy the pixels rather than taking the array, which would stop the
+        // image from being accelerated
+        int[] pixels = (int[])image.getRaster()
+                .getDataElements(0, 0, width, height, null);
+        
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_LENGTH
+                + width * height * 4);
+        buf.put(MAGIC);
+        buf.putInt(VERSION);
+        buf.putFloat(ScreenBuffer.IMAGE_SCALE_FACTOR);
+        buf.putLong(sourceLength);
+        buf.putLong(sourceModified);
+        buf.putInt(width);
+        buf.putInt(height);
+        buf.putInt(type == BufferedImage.TYPE_INT_ARGB ? 1 : 0);
+        buf.asIntBuffer().put(pixels, 0, width * height);
+        buf.clear();
+        
+        File file = getFile(name);
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory: " + parent);
+        }
+        
+        // Write to a temporary file so that readers never see half an image
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+                FileChannel channel = out.getChannel()) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+        
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Failed to write: " + file);
+            }
+        }
+        
+        writeCount.incrementAndGet();
+    }
+    
+    @Override
+    public void printDebugInfo(PrintWriter pw)
+    {
+        pw.println("Image Disk Cache");
+        pw.println("----------------");
+        pw.printf("directory: %s\n", dir);
+        pw.printf("hits: %d\n", hitCount.get());
+        pw.printf("misses: %d\n", missCount.get());
+        pw.printf("writes: %d\n", writeCount.get());
+        pw.println();
+    }
+    
+    /*
+     * Gets the file that holds a cached image.
+     */
+    private File getFile(String name)
+    {
+        return new File(dir, name + FILE_EXTENSION);
+    }
+    
+    /*
+     * Reads a cached image file. Returns null if the file is out of date.
+     */
+    private static BufferedImage read(File file, long sourceLength,
+            long sourceModified) throws IOException
+    {
+        MappedByteBuffer buf;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+        
+        byte[] magic = new byte[MAGIC.length];
+        buf.get(magic);
+        if (!Arrays.equals(magic, MAGIC)
+                || buf.getInt() != VERSION
+                || buf.getFloat() != ScreenBuffer.IMAGE_SCALE_FACTOR
+                || buf.getLong() != sourceLength
+                || buf.getLong() != sourceModified) {
+            return null;
+        }
+        
+        int width = buf.getInt();
+        int height = buf.getInt();
+        boolean hasAlpha = buf.getInt() != 0;
+        if (width <= 0 || height <= 0
+                || (long)width * height * 4 != buf.remaining()) {
+            return null;
+        }
+        
+        // Copy the pixels straight from the mapped file into the raster
+        int[] pixels = new int[width * height];
+        buf.asIntBuffer().get(pixels);
+        
+        DataBufferInt data = new DataBufferInt(pixels, pixels.length);
+        DirectColorModel model = hasAlpha
+                ? (DirectColorModel)ColorModel.getRGBdefault()
+                : RGB_MODEL;
+        WritableRaster raster = Raster.createPackedRaster(data, width, height,
+                width, model.getMasks(), null);
+        
+        return new BufferedImage(model, raster, false, null);
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator.io;
+
+import java.io.PrintWriter;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import thehambone.blackopsterminalemulator.util.Debuggable;
+
+/**
+ * A {@code ResourceCache} keeps recently loaded resources in memory so that
+ * they don't have to be read from disk and decoded again.
+ * <p>
+ * The cache has a budget measured in bytes. Resources are held strongly until
+ * the total size of the cached resources goes over the budget, at which
+ * point the least recently used resources are evicted. Evicted resources are
+ * not forgotten right away; they are kept through soft references, which the
+ * garbage collector clears only when memory runs low, so a resource that was
+ * evicted can often still be recovered without going to disk. Resources that
+ * are larger than the whole budget are only ever held softly.
+ * <p>
+ * The cache counts hits, misses and evictions. This class is thread-safe.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ * @param <V> the type of each resource in the cache
+ */
+public class ResourceCache<V> implements Debuggable
+{
+    private final String name;
+    private long maxBytes;
+    
+    private final LinkedHashMap<String, Entry<V>> entries;
+    private long byteCount;
+    
+    private final Map<String, SoftEntry<V>> softEntries;
+    private final ReferenceQueue<V> clearedEntries;
+    
+    private long hitCount;
+    private long softHitCount;
+    private long missCount;
+    private long evictionCount;
+    
+    /**
+     * Creates an empty {@code ResourceCache}.
+     * 
+     * @param name the name of the cache, used in debug info
+     * @param maxBytes the maximum total size of the resources held strongly
+     */
+    public ResourceCache(String name, long maxBytes)
+    {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException(
+                    "maxBytes must not be negative");
+        }
+        
+        this.name = name;
+        this.maxBytes = maxBytes;
+        
+        // Iterate from the least recently used entry
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        byteCount = 0;
+        
+        softEntries = new HashMap<>();
+        clearedEntries = new ReferenceQueue<>();
+        
+        hitCount = 0;
+        softHitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+    
+    /**
+     * Sets the maximum total size of the resources held strongly. Resources
+     * are evicted if the cache is over the new budget.
+     * 
+     * @param maxBytes the new budget in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes)
+    {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException(
+                    "maxBytes must not be negative");
+        }
+        
+        this.maxBytes = maxBytes;
+        trim();
+    }
+    
+    /**
+     * Gets a resource from the cache.
+     * 
+     * @param key the name of the resource
+     * @return the resource, or {@code null} if it is not in the cache
+     */
+    public synchronized V get(String key)
+    {
+        expungeClearedEntries();
+        
+        Entry<V> e = entries.get(key);
+        if (e != null) {
+            hitCount++;
+            return e.value;
+        }
+        
+        // Try to recover an evicted resource
+        SoftEntry<V> se = softEntries.get(key);
+        V value = se != null ? se.get() : null;
+        if (value != null) {
+            softHitCount++;
+            softEntries.remove(key);
+            put(key, value, se.size);
+            return value;
+        }
+        
+        missCount++;
+        return null;
+    }
+    
+    /**
+     * Adds a resource to the cache, evicting the least recently used
+     * resources if the cache goes over its budget.
+     * 
+     * @param key the name of the resource
+     * @param value the resource
+     * @param size the size of the resource in bytes
+     */
+    public synchronized void put(String key, V value, long size)
+    {
+        expungeClearedEntries();
+        
+        Entry<V> old = entries.remove(key);
+        if (old != null) {
+            byteCount -= old.size;
+        }
+        softEntries.remove(key);
+        
+        // Don't flush the whole cache for one resource that is too big
+        if (size > maxBytes) {
+            softEntries.put(key,
+                    new SoftEntry<>(key, value, size, clearedEntries));
+            return;
+        }
+        
+        entries.put(key, new Entry<>(value, size));
+        byteCount += size;
+        trim();
+    }
+    
+    /**
+     * Removes all resources from the cache. The counters are not reset.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        softEntries.clear();
+        byteCount = 0;
+    }
+    
+    /**
+     * Gets the total size of the resources held strongly.
+     * 
+     * @return the number of bytes used
+     */
+    public synchronized long getByteCount()
+    {
+        return byteCount;
+    }
+    
+    /**
+     * Gets the number of requests that found their resource in the cache,
+     * including resources recovered after eviction.
+     * 
+     * @return the number of hits
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount + softHitCount;
+    }
+    
+    /**
+     * Gets the number of requests that did not find their resource in the
+     * cache.
+     * 
+     * @return the number of misses
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+    
+    /**
+     * Gets the number of resources evicted to stay within the budget.
+     * 
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+    
+    /*
+     * Evicts the least recently used resources until the cache is within its
+     * budget. Evicted resources are held softly.
+     */
+    private void trim()
+    {
+        Iterator<Map.Entry<String, Entry<V>>> it
+                = entries.entrySet().iterator();
+        
+        while (byteCount > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry<V>> lru = it.next();
+            String key = lru.getKey();
+            Entry<V> e = lru.getValue();
+            
+            it.remove();
+            byteCount -= e.size;
+            evictionCount++;
+            
+            softEntries.put(key,
+                    new SoftEntry<>(key, e.value, e.size, clearedEntries));
+        }
+    }
+    
+    /*
+     * Forgets the soft entries that the garbage collector has cleared.
+     */
+    private void expungeClearedEntries()
+    {
+        SoftEntry<?> se;
+        
+        while ((se = (SoftEntry<?>)clearedEntries.poll()) != null) {
+            // Only remove the entry if it hasn't been replaced
+            if (softEntries.get(se.key) == se) {
+                softEntries.remove(se.key);
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void printDebugInfo(PrintWriter pw)
+    {
+        expungeClearedEntries();
+        
+        pw.println(name + " Cache");
+        pw.println(name.replaceAll(".", "-") + "------");
+        pw.printf("entries: %d (soft: %d)\n",
+                entries.size(), softEntries.size());
+        pw.printf("bytes: %d (max: %d)\n", byteCount, maxBytes);
+        pw.printf("hits: %d (soft: %d)\n", hitCount + softHitCount,
+                softHitCount);
+        pw.printf("misses: %d\n", missCount);
+        pw.printf("evictions: %d\n", evictionCount);
+        pw.println();
+    }
+    
+    /*
+     * A resource held strongly.
+     */
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final long size;
+        
+        private Entry(V value, long size)
+        {
+            this.value = value;
+            this.size = size;
+        }
+    }
+    
+    /*
+     * A resource held softly after being evicted.
+     */
+    private static final class SoftEntry<V> extends SoftReference<V>
+    {
+        private final String key;
+        private final long size;
+        
+        private SoftEntry(String key, V value, long size,
+                ReferenceQueue<? super V> queue)
+        {
+            super(value, queue);
+            this.key = key;
+            this.size = size;
+        }
+    }
+}
@@ -26,20 +26,31 @@ package thehambone.blackopsterminalemulator.io;
 
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.swing.JOptionPane;
 import thehambone.blackopsterminalemulator.Mail;
+import thehambone.blackopsterminalemulator.PagedText;
+import thehambone.blackopsterminalemulator.ScreenBuffer;
 import thehambone.blackopsterminalemulator.Server;
 import thehambone.blackopsterminalemulator.Terminal;
 import thehambone.blackopsterminalemulator.UserAccount;
@@ -76,7 +87,27 @@ public class ResourceLoader
     private static final String IMAGE_FILE_PATH = "img/";
     private static final String SOUND_FILE_PATH = "aud/";
     
+    // Suffix of the image cache keys of images scaled for the screen
+    private static final String SCALED_IMAGE_SUFFIX = "#scaled";
+    
+    // Text resources larger than this are streamed instead of loaded
+    private static final long MAX_LOADED_TEXT_FILE_SIZE = 64 * 1024;
+    
+    // Resource cache budgets
+    private static final long DEFAULT_TEXT_CACHE_BYTES = 1024 * 1024;
+    private static final long DEFAULT_IMAGE_CACHE_BYTES = 32 * 1024 * 1024;
+    private static final long DEFAULT_SOUND_CACHE_BYTES = 16 * 1024 * 1024;
+    
+    private static final ResourceCache<PagedText> TEXT_CACHE
+            = new ResourceCache<>("Text", DEFAULT_TEXT_CACHE_BYTES);
+    private static final ResourceCache<BufferedImage> IMAGE_CACHE
+            = new ResourceCache<>("Image", DEFAULT_IMAGE_CACHE_BYTES);
+    private static final ResourceCache<SoundData> SOUND_CACHE
+            = new ResourceCache<>("Sound", DEFAULT_SOUND_CACHE_BYTES);
+    
     private static String dataDir = DEFAULT_DATA_DIR;
+    private static ResourcePack pack = null;
+    private static ImageDiskCache imageDiskCache = null;
     
     /**
      * Sets the directory from which to load configuration files.
@@ -91,53 +122,239 @@ public class ResourceLoader
     }
     
     /**
-     * Loads a text resource.
+     * Sets the resource pack from which to load configuration files and
+     * resources. Anything not found in the pack is loaded from the data
+     * directory. Resources that are already cached are not reloaded, so the
+     * pack should be set before any resources are loaded.
+     * 
+     * @param resourcePack the resource pack, or {@code null} to load
+     *                     everything from the data directory
+     */
+    public static void setResourcePack(ResourcePack resourcePack)
+    {
+        pack = resourcePack;
+    }
+    
+    /**
+     * Gets the resource pack from which resources are loaded.
+     * 
+     * @return the resource pack, or {@code null} if resources are loaded from
+     *         the data directory
+     */
+    public static ResourcePack getResourcePack()
+    {
+        return pack;
+    }
+    
+    /**
+     * Sets the disk cache that keeps images scaled for the screen between
+     * runs.
+     * 
+     * @param cache the image disk cache, or {@code null} to scale images
+     *              every time they are loaded
+     */
+    public static void setImageDiskCache(ImageDiskCache cache)
+    {
+        imageDiskCache = cache;
+    }
+    
+    /**
+     * Gets the disk cache that keeps images scaled for the screen.
+     * 
+     * @return the image disk cache, or {@code null} if there isn't one
+     */
+    public static ImageDiskCache getImageDiskCache()
+    {
+        return imageDiskCache;
+    }
+    
+    /**
+     * Gets the cache that holds text resources laid out for the screen.
+     * 
+     * @return the text resource cache
+     */
+    public static ResourceCache<PagedText> getTextCache()
+    {
+        return TEXT_CACHE;
+    }
+    
+    /**
+     * Gets the cache that holds decoded image resources.
+     * 
+     * @return the image resource cache
+     */
+    public static ResourceCache<BufferedImage> getImageCache()
+    {
+        return IMAGE_CACHE;
+    }
+    
+    /**
+     * Gets the cache that holds decoded audio resources.
+     * 
+     * @return the audio resource cache
+     */
+    public static ResourceCache<?> getSoundCache()
+    {
+        return SOUND_CACHE;
+    }
+    
+    /**
+     * Loads a text resource and lays it out for printing on the terminal.
+     * Recently loaded resources are taken from the text cache, so that the
+     * text doesn't need to be read and laid out again.
      * 
      * @param resourceName the name of the resource to load
-     * @return the text data
+     * @return the laid-out text data
      */
-    public static String loadTextFile(String resourceName)
+    public static PagedText loadPagedTextFile(String resourceName)
     {
-        String textData = "";
+        String resourcePath = TEXT_FILE_PATH + resourceName;
+        PagedText text = TEXT_CACHE.get(resourcePath);
         
-        try {
-            String txtPath = dataDir + "/" + TEXT_FILE_PATH;
-            String resourcePath = txtPath + resourceName;
-            BufferedReader reader
-                    = new BufferedReader(new FileReader(resourcePath));
-            
+        if (text != null) {
+            return text;
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        boolean isComplete = false;
+        try (BufferedReader reader = openReader(resourcePath)) {
             String line;
             while ((line = reader.readLine()) != null) {
-                textData += line + "\n";
+                sb.append(line).append('\n');
             }
+            isComplete = true;
         } catch (IOException ex) {
             Logger.stackTrace(ex);
         }
         
-        return textData;
+        // Only cache text that was read in full
+        text = new PagedText(sb.toString(), Terminal.COLUMNS,
+                Terminal.PAGE_LINES);
+        if (isComplete) {
+            TEXT_CACHE.put(resourcePath, text, getPagedTextSize(text));
+        }
+        
+        return text;
     }
     
     /**
-     * Loads an image resource.
+     * Opens a text resource for reading a piece at a time. The caller must
+     * close the reader.
+     * 
+     * @param resourceName the name of the resource to open
+     * @return a reader for the text data
+     * @throws IOException if the resource cannot be opened
+     */
+    public static Reader openTextFile(String resourceName) throws IOException
+    {
+        return openReader(TEXT_FILE_PATH + resourceName);
+    }
+    
+    /**
+     * Checks whether a text resource is too large to be loaded into memory
+     * all at once. Large text resources should be read with
+     * {@link #openTextFile(String)}.
+     * 
+     * @param resourceName the name of the resource
+     * @return {@code true} if the resource should be streamed, {@code false}
+     *         otherwise
+     */
+    public static boolean isLargeTextFile(String resourceName)
+    {
+        return getResourceLength(TEXT_FILE_PATH + resourceName)
+                > MAX_LOADED_TEXT_FILE_SIZE;
+    }
+    
+    /**
+     * Loads an image resource. Recently loaded images are taken from the
+     * image cache, so the image returned must not be modified.
      * 
      * @param resourceName the name of the resource to load
      * @return the image data
      */
     public static BufferedImage loadImageFile(String resourceName)
     {
-        BufferedImage image = null;
+        String resourcePath = IMAGE_FILE_PATH + resourceName;
+        BufferedImage image = IMAGE_CACHE.get(resourcePath);
         
-        try {
-            String imgPath = dataDir + "/" + IMAGE_FILE_PATH;
-            String resourcePath = imgPath + resourceName;
-            image = ImageIO.read(new FileInputStream(resourcePath));
-        } catch (IOException ex) {
-            Logger.stackTrace(ex);
+        if (image != null) {
+            return image;
+        }
+        
+        image = decodeImage(resourcePath);
+        if (image != null) {
+            IMAGE_CACHE.put(resourcePath, image, getImageSize(image));
+        }
+        
+        return image;
+    }
+    
+    /**
+     * Loads an image resource and scales it for the screen. The scaled image
+     * is taken from the image cache or the image disk cache if it is there,
+     * so that the image doesn't need to be decoded and scaled again. The
+     * image returned must not be modified.
+     * 
+     * @param resourceName the name of the resource to load
+     * @return the scaled image data
+     * @see ScreenBuffer#scaleImage(BufferedImage)
+     */
+    public static BufferedImage loadScaledImageFile(String resourceName)
+    {
+        String resourcePath = IMAGE_FILE_PATH + resourceName;
+        String key = resourcePath + SCALED_IMAGE_SUFFIX;
+        BufferedImage image = IMAGE_CACHE.get(key);
+        
+        if (image != null) {
+            return image;
+        }
+        
+        ImageDiskCache diskCache = imageDiskCache;
+        if (diskCache != null) {
+            image = diskCache.get(resourcePath,
+                    getResourceLength(resourcePath),
+                    getResourceLastModified(resourcePath));
+        }
+        
+        if (image == null) {
+            image = scaleImage(resourcePath, diskCache);
+        }
+        
+        if (image != null) {
+            IMAGE_CACHE.put(key, image, getImageSize(image));
         }
         
         return image;
     }
     
+    /**
+     * Scales every image resource that isn't already in the image disk cache
+     * and stores it there.
+     * 
+     * @return the number of images added to the cache
+     */
+    public static int warmImageDiskCache()
+    {
+        ImageDiskCache diskCache = imageDiskCache;
+        int count = 0;
+        
+        if (diskCache == null) {
+            return 0;
+        }
+        
+        for (String resourcePath : listResources(IMAGE_FILE_PATH)) {
+            BufferedImage image = diskCache.get(resourcePath,
+                    getResourceLength(resourcePath),
+                    getResourceLastModified(resourcePath));
+            if (image == null
+                    && scaleImage(resourcePath, diskCache) != null) {
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
     public static Image loadEmbeddedImage(String resourcePath)
     {
         Image image = null;
@@ -153,20 +370,42 @@ public class ResourceLoader
     }
     
     /**
-     * Loads an audio resource.
+     * Loads an audio resource. The samples of recently loaded sounds are
+     * taken from the sound cache; each call returns a new stream.
      * 
      * @param resourceName the name of the resource to load
      * @return the audio stream
      */
     public static AudioInputStream loadSoundFile(String resourceName)
     {
+        String resourcePath = SOUND_FILE_PATH + resourceName;
+        SoundData sound = SOUND_CACHE.get(resourcePath);
         AudioInputStream stream = null;
         
+        if (sound != null) {
+            return sound.openStream();
+        }
+        
         try {
-            String audPath = dataDir + "/" + SOUND_FILE_PATH;
-            String resourcePath = audPath + resourceName;
-            stream = AudioSystem
-                    .getAudioInputStream(new java.io.File(resourcePath));
+            // The audio file reader needs a stream that supports mark/reset
+            InputStream data = openResource(resourcePath);
+            if (!data.markSupported()) {
+                data = new BufferedInputStream(data);
+            }
+            stream = AudioSystem.getAudioInputStream(data);
+            
+            // Streams without fixed-size frames can't be cached
+            if (stream.getFormat().getFrameSize()
+                    == AudioSystem.NOT_SPECIFIED) {
+                return stream;
+            }
+            
+            // Decode the whole sound so that it can be played again later
+            try (AudioInputStream in = stream) {
+                sound = new SoundData(in.getFormat(), readFully(in));
+            }
+            SOUND_CACHE.put(resourcePath, sound, sound.samples.length);
+            stream = sound.openStream();
         } catch (UnsupportedAudioFileException | IOException ex) {
             Logger.stackTrace(ex);
         }
@@ -174,6 +413,23 @@ public class ResourceLoader
         return stream;
     }
     
+    /**
+     * Writes the statistics of the resource caches to a data stream.
+     * 
+     * @param pw data stream
+     */
+    public static void printCacheInfo(PrintWriter pw)
+    {
+        TEXT_CACHE.printDebugInfo(pw);
+        IMAGE_CACHE.printDebugInfo(pw);
+        SOUND_CACHE.printDebugInfo(pw);
+        
+        ImageDiskCache diskCache = imageDiskCache;
+        if (diskCache != null) {
+            diskCache.printDebugInfo(pw);
+        }
+    }
+    
     /**
      * Loads the filesystem configuration.
      * 
@@ -189,8 +445,8 @@ public class ResourceLoader
         FileSystem tempFileSystem = loadFiles(exes);
         
         try {
-            String fsCfgPath = dataDir + "/" + CFG_FILESYSTEM;
-            DATFileReader reader = new DATFileReader(fsCfgPath);
+            DATFileReader reader
+                    = new DATFileReader(openReader(CFG_FILESYSTEM));
             reader.setCommentChar('#');
             reader.ignoreWhitespaces(true);
             
@@ -271,8 +527,7 @@ public class ResourceLoader
     {
         FileSystem tempFileSystem = new FileSystem(new Directory(0, ""));
         try {
-            String fCfgPath = dataDir + "/" + CFG_FILES;
-            DATFileReader reader = new DATFileReader(fCfgPath);
+            DATFileReader reader = new DATFileReader(openReader(CFG_FILES));
             reader.setCommentChar('#');
             reader.ignoreWhitespaces(true);
             
@@ -353,8 +608,7 @@ public class ResourceLoader
     public static void loadMailConfiguration()
     {
         try {
-            String mCfgPath = dataDir + "/" + CFG_MAIL;
-            DATFileReader reader = new DATFileReader(mCfgPath);
+            DATFileReader reader = new DATFileReader(openReader(CFG_MAIL));
             reader.setCommentChar('#');
             reader.ignoreWhitespaces(true);
             
@@ -396,8 +650,8 @@ public class ResourceLoader
         Server s = null;
         
         try {
-            String sCfgPath = dataDir + "/" + CFG_SERVERS;
-            DATFileReader reader = new DATFileReader(sCfgPath);
+            DATFileReader reader
+                    = new DATFileReader(openReader(CFG_SERVERS));
             reader.setCommentChar('#');
             reader.ignoreWhitespaces(true);
             
@@ -431,8 +685,7 @@ public class ResourceLoader
         UserAccount u = null;
         
         try {
-            String uCfgPath = dataDir + "/" + CFG_USERS;
-            DATFileReader reader = new DATFileReader(uCfgPath);
+            DATFileReader reader = new DATFileReader(openReader(CFG_USERS));
             reader.setCommentChar('#');
             reader.ignoreWhitespaces(true);
             
@@ -473,11 +726,7 @@ public class ResourceLoader
         String motd = "";
         String line;
         
-        try {
-            String motdCfgPath = dataDir + "/" + CFG_MOTD;
-            BufferedReader fileReader
-                    = new BufferedReader(new FileReader(motdCfgPath));
-            
+        try (BufferedReader fileReader = openReader(CFG_MOTD)) {
             while ((line = fileReader.readLine()) != null) {
                 motd += line + "\n";
             }
@@ -490,4 +739,194 @@ public class ResourceLoader
             throw new RuntimeException(msg, ex);
         }
     }
+    
+    /*
+     * Opens a stream that reads a resource from the resource pack or the data
+     * directory. Resource paths are relative to the data directory.
+     */
+    private static InputStream openResource(String resourcePath)
+            throws IOException
+    {
+        if (pack != null && pack.contains(resourcePath)) {
+            return pack.openStream(resourcePath);
+        }
+        
+        return new FileInputStream(dataDir + "/" + resourcePath);
+    }
+    
+    /*
+     * Opens a reader that reads a text resource from the resource pack or the
+     * data directory.
+     */
+    private static BufferedReader openReader(String resourcePath)
+            throws IOException
+    {
+        return new BufferedReader(
+                new InputStreamReader(openResource(resourcePath)));
+    }
+    
+    /*
+     * Lists the resources in a directory and its subdirectories, including
+     * those in the resource pack.
+     */
+    private static Set<String> listResources(String dirPath)
+    {
+        Set<String> names = new TreeSet<>();
+        
+        if (pack != null) {
+            for (String name : pack.getNames()) {
+                if (name.startsWith(dirPath)) {
+                    names.add(name);
+                }
+            }
+        }
+        
+        listFiles(new java.io.File(dataDir + "/" + dirPath), dirPath, names);
+        
+        return names;
+    }
+    
+    /*
+     * Adds the paths of all files under a directory to a set.
+     */
+    private static void listFiles(java.io.File dir, String prefix,
+            Set<String> names)
+    {
+        java.io.File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        
+        for (java.io.File f : files) {
+            if (f.isDirectory()) {
+                listFiles(f, prefix + f.getName() + "/", names);
+            } else if (f.isFile()) {
+                names.add(prefix + f.getName());
+            }
+        }
+    }
+    
+    /*
+     * Gets the length of a resource in bytes.
+     */
+    private static long getResourceLength(String resourcePath)
+    {
+        if (pack != null && pack.contains(resourcePath)) {
+            return pack.getLength(resourcePath);
+        }
+        
+        return new java.io.File(dataDir + "/" + resourcePath).length();
+    }
+    
+    /*
+     * Gets the time at which a resource was last modified. Resources in the
+     * resource pack share the modification time of the pack.
+     */
+    private static long getResourceLastModified(String resourcePath)
+    {
+        if (pack != null && pack.contains(resourcePath)) {
+            return pack.getLastModified();
+        }
+        
+        return new java.io.File(dataDir + "/" + resourcePath).lastModified();
+    }
+    
+    /*
+     * Decodes an image resource. Returns null if the image can't be read.
+     */
+    private static BufferedImage decodeImage(String resourcePath)
+    {
+        try (InputStream in = openResource(resourcePath)) {
+            return ImageIO.read(in);
+        } catch (IOException ex) {
+            Logger.stackTrace(ex);
+        }
+        
+        return null;
+    }
+    
+    /*
+     * Decodes and scales an image resource, and stores the scaled image in the
+     * disk cache if there is one.
+     */
+    private static BufferedImage scaleImage(String resourcePath,
+            ImageDiskCache diskCache)
+    {
+        BufferedImage image = decodeImage(resourcePath);
+        if (image == null) {
+            return null;
+        }
+        
+        BufferedImage scaledImage = ScreenBuffer.scaleImage(image);
+        if (diskCache != null) {
+            try {
+                diskCache.put(resourcePath, getResourceLength(resourcePath),
+                        getResourceLastModified(resourcePath), scaledImage);
+            } catch (IOException ex) {
+                Logger.error("Failed to cache scaled image: %s\n",
+                        resourcePath);
+                Logger.stackTrace(ex);
+            }
+        }
+        
+        return scaledImage;
+    }
+    
+    /*
+     * Estimates the memory used by laid-out text. Java strings use two bytes
+     * per character, and each line end takes an int.
+     */
+    private static long getPagedTextSize(PagedText text)
+    {
+        return text.length() * 2L + text.getLineCount() * 4L;
+    }
+    
+    /*
+     * Estimates the memory used by the pixels of an image.
+     */
+    private static long getImageSize(BufferedImage image)
+    {
+        DataBuffer data = image.getRaster().getDataBuffer();
+        int bytesPerElement
+                = DataBuffer.getDataTypeSize(data.getDataType()) / 8;
+        
+        return (long)data.getSize() * data.getNumBanks() * bytesPerElement;
+    }
+    
+    /*
+     * Reads the rest of a stream into an array.
+     */
+    private static byte[] readFully(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        
+        return out.toByteArray();
+    }
+    
+    /*
+     * The decoded samples of a sound resource.
+     */
+    private static final class SoundData
+    {
+        private final AudioFormat format;
+        private final byte[] samples;
+        
+        private SoundData(AudioFormat format, byte[] samples)
+        {
+            this.format = format;
+            this.samples = samples;
+        }
+        
+        private AudioInputStream openStream()
+        {
+            return new AudioInputStream(new ByteArrayInputStream(samples),
+                    format, samples.length / format.getFrameSize());
+        }
+    }
 }
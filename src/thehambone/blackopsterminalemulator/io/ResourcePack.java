@@ -0,0 +1,389 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@code ResourcePack} is a single file that holds all of the terminal's
+ * data files.
+ * <p>
+ * A pack starts with an index that lists the name, type, position and length
+ * of every resource, followed by the contents of the resources one after
+ * another. Names are paths relative to the data directory, using forward
+ * slashes, such as "files.dat" or "img/berlin". The layout of a pack is:
+ * <pre>
+ *   magic        8 bytes    "BLOTEPAK"
+ *   version      int
+ *   entry count  int
+ *   entries      for each resource:
+ *                  name length  unsigned short
+ *                  name         UTF-8 bytes
+ *                  type         byte (see {@link Type})
+ *                  offset       long, from the start of the file
+ *                  length       int
+ *   data         the contents of the resources
+ * </pre>
+ * All numbers are big-endian.
+ * <p>
+ * The whole pack is mapped into memory when it is opened, so the file is
+ * opened once and reading a resource only touches the pages it occupies.
+ * Packs are built with {@link ResourcePacker}.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class ResourcePack
+{
+    static final byte[] MAGIC = "BLOTEPAK".getBytes(Charset.forName("UTF-8"));
+    static final int VERSION = 1;
+    static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+    
+    /**
+     * The kinds of resources held in a pack.
+     */
+    public static enum Type
+    {
+        /**
+         * A configuration file at the top of the data directory.
+         */
+        CONFIG,
+        
+        /**
+         * A text file from the "txt" directory.
+         */
+        TEXT,
+        
+        /**
+         * An image file from the "img" directory.
+         */
+        IMAGE,
+        
+        /**
+         * A sound file from the "aud" directory.
+         */
+        SOUND,
+        
+        /**
+         * Any other file.
+         */
+        OTHER;
+        
+        /**
+         * Determines the type of a resource from its name.
+         * 
+         * @param name the name of the resource
+         * @return the resource type
+         */
+        public static Type forName(String name)
+        {
+            if (!name.contains("/")) {
+                return CONFIG;
+            } else if (name.startsWith("txt/")) {
+                return TEXT;
+            } else if (name.startsWith("img/")) {
+                return IMAGE;
+            } else if (name.startsWith("aud/")) {
+                return SOUND;
+            }
+            return OTHER;
+        }
+    }
+    
+    private final String fileName;
+    private final long lastModified;
+    private final MappedByteBuffer data;
+    private final Map<String, Entry> index;
+    
+    /**
+     * Opens a resource pack and reads its index.
+     * 
+     * @param file the pack file
+     * @throws IOException if the file cannot be read or is not a valid pack
+     */
+    public ResourcePack(File file) throws IOException
+    {
+        fileName = file.getPath();
+        lastModified = file.lastModified();
+        
+        // The mapping stays valid after the file is closed
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+        
+        index = new HashMap<>();
+        try {
+            readIndex();
+        } catch (RuntimeException ex) {
+            // Buffer underflows and bad offsets mean the file is corrupt
+            throw new IOException("Invalid resource pack: " + fileName, ex);
+        }
+    }
+    
+    /**
+     * Gets the number of resources in the pack.
+     * 
+     * @return the number of resources
+     */
+    public int getEntryCount()
+    {
+        return index.size();
+    }
+    
+    /**
+     * Gets the names of all resources in the pack.
+     * 
+     * @return an unmodifiable set of resource names
+     */
+    public Set<String> getNames()
+    {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+    
+    /**
+     * Gets the time at which the pack file was last modified, as it was when
+     * the pack was opened.
+     * 
+     * @return the modification time of the pack file
+     */
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+    
+    /**
+     * Checks whether the pack holds a resource.
+     * 
+     * @param name the name of the resource
+     * @return {@code true} if the resource is in the pack, {@code false}
+     *         otherwise
+     */
+    public boolean contains(String name)
+    {
+        return index.containsKey(name);
+    }
+    
+    /**
+     * Gets the type of a resource.
+     * 
+     * @param name the name of the resource
+     * @return the resource type, or {@code null} if the resource is not in
+     *         the pack
+     */
+    public Type getType(String name)
+    {
+        Entry e = index.get(name);
+        return e != null ? e.type : null;
+    }
+    
+    /**
+     * Gets the length of a resource.
+     * 
+     * @param name the name of the resource
+     * @return the length of the resource in bytes, or -1 if the resource is
+     *         not in the pack
+     */
+    public int getLength(String name)
+    {
+        Entry e = index.get(name);
+        return e != null ? e.length : -1;
+    }
+    
+    /**
+     * Gets the contents of a resource. The buffer returned shares the pack's
+     * memory and cannot be modified.
+     * 
+     * @param name the name of the resource
+     * @return the resource contents, or {@code null} if the resource is not
+     *         in the pack
+     */
+    public ByteBuffer getBuffer(String name)
+    {
+        Entry e = index.get(name);
+        if (e == null) {
+            return null;
+        }
+        
+        ByteBuffer buf = data.asReadOnlyBuffer();
+        buf.position(e.offset);
+        buf.limit(e.offset + e.length);
+        return buf.slice();
+    }
+    
+    /**
+     * Opens a stream that reads the contents of a resource.
+     * 
+     * @param name the name of the resource
+     * @return a stream of the resource contents
+     * @throws FileNotFoundException if the resource is not in the pack
+     */
+    public InputStream openStream(String name) throws FileNotFoundException
+    {
+        ByteBuffer buf = getBuffer(name);
+        if (buf == null) {
+            throw new FileNotFoundException(
+                    name + " (not in resource pack " + fileName + ")");
+        }
+        
+        return new ByteBufferInputStream(buf);
+    }
+    
+    /*
+     * Reads the index at the start of the pack.
+     */
+    private void readIndex() throws IOException
+    {
+        ByteBuffer buf = data.duplicate();
+        byte[] magic = new byte[MAGIC.length];
+        
+        buf.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a resource pack: " + fileName);
+        }
+        
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported resource pack version: "
+                    + version);
+        }
+        
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] nameBytes = new byte[buf.getShort() & 0xFFFF];
+            buf.get(nameBytes);
+            String name = new String(nameBytes, NAME_CHARSET);
+            
+            Type type = Type.values()[buf.get()];
+            long offset = buf.getLong();
+            int length = buf.getInt();
+            
+            if (offset < 0 || length < 0 || offset + length > data.capacity()) {
+                throw new IOException("Resource out of bounds: " + name);
+            }
+            
+            index.put(name, new Entry(type, (int)offset, length));
+        }
+    }
+    
+    /*
+     * The location of a resource in the pack.
+     */
+    private static final class Entry
+    {
+        private final Type type;
+        private final int offset;
+        private final int length;
+        
+        private Entry(Type type, int offset, int length)
+        {
+            this.type = type;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+    
+    /*
+     * An InputStream that reads from a ByteBuffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buf;
+        
+        private ByteBufferInputStream(ByteBuffer buf)
+        {
+            this.buf = buf;
+            buf.mark();
+        }
+        
+        @Override
+        public int read()
+        {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+        
+        @Override
+        public long skip(long n)
+        {
+            int skipped = (int)Math.max(Math.min(n, buf.remaining()), 0);
+            buf.position(buf.position() + skipped);
+            return skipped;
+        }
+        
+        @Override
+        public int available()
+        {
+            return buf.remaining();
+        }
+        
+        @Override
+        public boolean markSupported()
+        {
+            return true;
+        }
+        
+        @Override
+        public synchronized void mark(int readlimit)
+        {
+            buf.mark();
+        }
+        
+        @Override
+        public synchronized void reset()
+        {
+            buf.reset();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a {@link ResourcePack} from the contents of a data directory.
+ * <p>
+ * Every file under the directory is added to the pack, named by its path
+ * relative to the directory. The packer can be run from the command line:
+ * <pre>
+ *   java -cp BLOTE.jar thehambone.blackopsterminalemulator.io.ResourcePacker
+ *           DATA_DIR PACK_FILE
+ * </pre>
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public final class ResourcePacker
+{
+    // Size of the fixed part of the header and of each index entry
+    private static final int HEADER_LENGTH
+            = ResourcePack.MAGIC.length + 4 + 4;
+    private static final int ENTRY_LENGTH = 2 + 1 + 8 + 4;
+    
+    private ResourcePacker()
+    {
+    }
+    
+    /**
+     * Packs a data directory from the command line.
+     * 
+     * @param args the data directory and the pack file to create
+     */
+    public static void main(String[] args)
+    {
+        if (args.length != 2) {
+            System.err.println("Usage: ResourcePacker DATA_DIR PACK_FILE");
+            System.exit(1);
+        }
+        
+        try {
+            int count = pack(new File(args[0]), new File(args[1]));
+            System.out.printf("Packed %d resources into %s\n", count,
+                    args[1]);
+        } catch (IOException ex) {
+            System.err.println("Failed to create resource pack: "
+                    + ex.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Packs every file in a data directory into a resource pack.
+     * 
+     * @param dataDir the data directory
+     * @param packFile the resource pack to create
+     * @return the number of resources packed
+     * @throws IOException if a file cannot be read or the pack cannot be
+     *                     written
+     */
+    public static int pack(File dataDir, File packFile) throws IOException
+    {
+        if (!dataDir.isDirectory()) {
+            throw new IOException("Not a directory: " + dataDir);
+        }
+        
+        List<String> names = new ArrayList<>();
+        listFiles(dataDir, "", names);
+        
+        // Lay out the index first so that the data offsets are known
+        byte[][] nameBytes = new byte[names.size()][];
+        long offset = HEADER_LENGTH;
+        for (int i = 0; i < names.size(); i++) {
+            nameBytes[i] = names.get(i).getBytes(ResourcePack.NAME_CHARSET);
+            if (nameBytes[i].length > 0xFFFF) {
+                throw new IOException("Name too long: " + names.get(i));
+            }
+            offset += ENTRY_LENGTH + nameBytes[i].length;
+        }
+        
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(packFile)))) {
+            out.write(ResourcePack.MAGIC);
+            out.writeInt(ResourcePack.VERSION);
+            out.writeInt(names.size());
+            
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                long length = new File(dataDir, name).length();
+                
+                // The pack is mapped into a single buffer
+                if (offset + length > Integer.MAX_VALUE) {
+                    throw new IOException("Resource pack too large");
+                }
+                
+                out.writeShort(nameBytes[i].length);
+                out.write(nameBytes[i]);
+                out.writeByte(ResourcePack.Type.forName(name).ordinal());
+                out.writeLong(offset);
+                out.writeInt((int)length);
+                offset += length;
+            }
+            
+            for (String name : names) {
+                Files.copy(new File(dataDir, name).toPath(), out);
+            }
+        }
+        
+        return names.size();
+    }
+    
+    /*
+     * Adds the relative paths of all files under a directory to a list, in a
+     * stable order.
+     */
+    private static void listFiles(File dir, String prefix, List<String> names)
+    {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        
+        Arrays.sort(files);
+        for (File f : files) {
+            if (f.isDirectory()) {
+                listFiles(f, prefix + f.getName() + "/", names);
+            } else if (f.isFile()) {
+                names.add(prefix + f.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@code CharRingBuffer} is a bounded first-in-first-out queue of characters
+ * that is shared by exactly two threads: one producer, which adds characters,
+ * and one consumer, which removes them.
+ * <p>
+ * Neither thread takes a lock. The producer only writes the tail counter and
+ * the consumer only writes the head counter, so each counter has a single
+ * writer and the characters between them are safely published by the
+ * volatile counter writes. A consumer that finds the buffer empty parks until
+ * the producer adds a character.
+ * <p>
+ * If the buffer is full, new characters are rejected rather than overwriting
+ * characters that have not been read yet.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ */
+public class CharRingBuffer
+{
+    private final char[] buffer;
+    private final int mask;
+    
+    private final AtomicLong head;
+    private final AtomicLong tail;
+    
+    private volatile Thread waitingConsumer;
+    
+    /**
+     * Creates an empty {@code CharRingBuffer} that can hold at least the
+     * specified number of characters. The capacity is rounded up to a power of
+     * two.
+     * 
+     * @param capacity the minimum number of characters the buffer can hold
+     */
+    public CharRingBuffer(int capacity)
+    {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "capacity must be a postive integer");
+        }
+        
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        
+        buffer = new char[size];
+        mask = size - 1;
+        
+        head = new AtomicLong(0);
+        tail = new AtomicLong(0);
+        
+        waitingConsumer = null;
+    }
+    
+    /**
+     * Returns the maximum number of characters the buffer can hold.
+     * 
+     * @return the buffer capacity
+     */
+    public int getCapacity()
+    {
+        return buffer.length;
+    }
+    
+    /**
+     * Checks whether the buffer is empty.
+     * 
+     * @return {@code true} if there are no characters to read, {@code false}
+     *         otherwise
+     */
+    public boolean isEmpty()
+    {
+        return head.get() == tail.get();
+    }
+    
+    /**
+     * Returns the number of characters that can be added before the buffer is
+     * full. The consumer may remove characters at any time, so there may be
+     * more space by the time characters are added, but never less. This method
+     * should only be called by the producer thread.
+     * 
+     * @return the number of free places in the buffer
+     */
+    public int remainingCapacity()
+    {
+        return (int)(buffer.length - (tail.get() - head.get()));
+    }
+    
+    /**
+     * Adds a character to the rear of the buffer. This method should only be
+     * called by the producer thread.
+     * 
+     * @param c the character to add
+     * @return {@code true} if the character was added, {@code false} if the
+     *         buffer is full
+     */
+    public boolean offer(char c)
+    {
+        long t = tail.get();
+        
+        if (t - head.get() == buffer.length) {
+            return false;
+        }
+        
+        buffer[(int)t & mask] = c;
+        tail.set(t + 1);
+        wakeConsumer();
+        return true;
+    }
+    
+    /**
+     * Adds a range of characters to the rear of the buffer at once. The
+     * consumer sees either none or all of the characters that were added. This
+     * method should only be called by the producer thread.
+     * 
+     * @param chars the array containing the characters to add
+     * @param offset the index of the first character to add
+     * @param length the number of characters to add
+     * @return the number of characters added, which is less than
+     *         {@code length} if the buffer does not have enough space
+     */
+    public int offer(char[] chars, int offset, int length)
+    {
+        long t = tail.get();
+        int n = (int)Math.min(length, buffer.length - (t - head.get()));
+        
+        if (n <= 0) {
+            return 0;
+        }
+        
+        for (int i = 0; i < n; i++) {
+            buffer[(int)(t + i) & mask] = chars[offset + i];
+        }
+        tail.set(t + n);
+        wakeConsumer();
+        return n;
+    }
+    
+    /**
+     * Removes the character at the front of the buffer, waiting for one to be
+     * added if the buffer is empty. This method should only be called by the
+     * consumer thread.
+     * 
+     * @return the character removed
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public char take() throws InterruptedException
+    {
+        long h = head.get();
+        
+        while (h == tail.get()) {
+            /* Announce that the consumer is going to sleep, then check again
+               so that a character added in the meantime isn't missed */
+            waitingConsumer = Thread.currentThread();
+            if (h == tail.get()) {
+                LockSupport.park(this);
+            }
+            waitingConsumer = null;
+            
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        
+        char c = buffer[(int)h & mask];
+        head.set(h + 1);
+        return c;
+    }
+    
+    /**
+     * Removes as many characters as are available, up to a maximum, without
+     * waiting. This method should only be called by the consumer thread.
+     * 
+     * @param chars the array to copy the characters into
+     * @param offset the index at which to store the first character
+     * @param length the maximum number of characters to remove
+     * @return the number of characters removed, 0 if the buffer is empty
+     */
+    public int poll(char[] chars, int offset, int length)
+    {
+        long h = head.get();
+        int n = (int)Math.min(length, tail.get() - h);
+        
+        for (int i = 0; i < n; i++) {
+            chars[offset + i] = buffer[(int)(h + i) & mask];
+        }
+        head.set(h + n);
+        return n;
+    }
+    
+    /**
+     * Discards all of the characters in the buffer. This method should only be
+     * called by the consumer thread.
+     */
+    public void clear()
+    {
+        head.set(tail.get());
+    }
+    
+    /*
+     * Unparks the consumer thread if it is waiting for a character.
+     */
+    private void wakeConsumer()
+    {
+        Thread t = waitingConsumer;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+}
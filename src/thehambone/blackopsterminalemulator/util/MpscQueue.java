@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015-2016 Wes Hampson <thehambone93@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package thehambone.blackopsterminalemulator.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An {@code MpscQueue} is an unbounded first-in-first-out queue that any
+ * number of producer threads may add to and exactly one consumer thread
+ * removes from.
+ * <p>
+ * Neither side takes a lock. The queue is a singly-linked list with a dummy
+ * node at the front. A producer claims the rear of the list by swapping its
+ * node into the tail reference, then links the previous rear node to it, so
+ * items are consumed in the order in which the swaps happened. The consumer
+ * owns the front of the list and follows the links. A consumer that finds the
+ * queue empty parks until a producer adds an item.
+ * <p>
+ * Created on Oct 16, 2026.
+ *
+ * @author Wes Hampson
+ * @param <E> the type of each item in the queue
+ */
+public class MpscQueue<E>
+{
+    private Node<E> head;
+    private final AtomicReference<Node<E>> tail;
+    
+    private volatile Thread waitingConsumer;
+    
+    /**
+     * Creates an empty {@code MpscQueue}.
+     */
+    public MpscQueue()
+    {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+        
+        waitingConsumer = null;
+    }
+    
+    /**
+     * Adds an item to the rear of the queue. This method may be called by any
+     * thread.
+     * 
+     * @param item the item to add
+     */
+    public void offer(E item)
+    {
+        if (item == null) {
+            throw new NullPointerException("item must not be null");
+        }
+        
+        Node<E> node = new Node<>(item);
+        Node<E> previous = tail.getAndSet(node);
+        previous.next = node;
+        
+        // Wake the consumer if it is waiting for an item
+        Thread t = waitingConsumer;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+    
+    /**
+     * Checks whether the queue is empty. An item that is being added at the
+     * time of the call may not be seen. This method should only be called by
+     * the consumer thread.
+     * 
+     * @return {@code true} if there are no items to remove, {@code false}
+     *         otherwise
+     */
+    public boolean isEmpty()
+    {
+        return head.next == null;
+    }
+    
+    /**
+     * Removes the item at the front of the queue without waiting. This method
+     * should only be called by the consumer thread.
+     * 
+     * @return the item removed, or {@code null} if the queue is empty
+     */
+    public E poll()
+    {
+        Node<E> next = head.next;
+        
+        if (next == null) {
+            return null;
+        }
+        
+        // The node becomes the new dummy node
+        E item = next.item;
+        next.item = null;
+        head = next;
+        return item;
+    }
+    
+    /**
+     * Removes the item at the front of the queue, waiting for one to be added
+     * if the queue is empty. This method should only be called by the consumer
+     * thread.
+     * 
+     * @return the item removed
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public E take() throws InterruptedException
+    {
+        E item;
+        
+        while ((item = poll()) == null) {
+            /* Announce that the consumer is going to sleep, then check again
+               so that an item added in the meantime isn't missed */
+            waitingConsumer = Thread.currentThread();
+            if (isEmpty()) {
+                LockSupport.park(this);
+            }
+            waitingConsumer = null;
+            
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        
+        return item;
+    }
+    
+    /*
+     * A link in the queue.
+     */
+    private static final class Node<E>
+    {
+        private E item;
+        private volatile Node<E> next;
+        
+        private Node(E item)
+        {
+            this.item = item;
+            next = null;
+        }
+    }
+}